@@ -0,0 +1,53 @@
+package algo;
+
+// SIMD versions of the kernels of vectorOps (do not call directly: use vectorOps)
+// the lanes are doubles: the preferred species of the CPU (4 lanes with AVX2, 8 with AVX-512)
+// the tail of the arrays (less than one vector) uses the scalar loops
+// optional source root (src-vector): compiled with --add-modules jdk.incubator.vector, next to
+// src; vectorOps loads this class by its name, the default build of src doesn't need it
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+class vectorKernels implements vectorOps.kernels {
+	static final VectorSpecies<Double> S = DoubleVector.SPECIES_PREFERRED;
+
+	public void subtract(double[] src, int srcOff, double[] dst, int dstOff, int len, double v) {
+		int j = 0;
+		int bound = S.loopBound(len);
+		for (; j < bound; j += S.length())
+			DoubleVector.fromArray(S, src, srcOff + j).sub(v).intoArray(dst, dstOff + j);
+		for (; j < len; j++)
+			dst[dstOff + j] = src[srcOff + j] - v;
+	}
+
+	public int filter(double[] a, double[] b, double[] c, int from, int to,
+	                  double va, double vb, double vc, boolean le, int[] out) {
+		// two loops: the comparison must be a constant to be compiled into SIMD instructions
+		// only the vectors with at least one candidate are scanned again to get the positions
+		// (VectorMask.toLong is not compiled into SIMD instructions before JDK 19)
+		int n = 0;
+		int k = from;
+		int bound = from + S.loopBound(to - from);
+		if (le) {
+			for (; k < bound; k += S.length()) {
+				VectorMask<Double> m = DoubleVector.fromArray(S, a, k).compare(VectorOperators.LE, va)
+						.and(DoubleVector.fromArray(S, b, k).compare(VectorOperators.LE, vb))
+						.and(DoubleVector.fromArray(S, c, k).compare(VectorOperators.LE, vc));
+				if (m.anyTrue())
+					n = vectorOps.filterScalar(a, b, c, k, k + S.length(), va, vb, vc, le, out, n);
+			}
+		} else {
+			for (; k < bound; k += S.length()) {
+				VectorMask<Double> m = DoubleVector.fromArray(S, a, k).compare(VectorOperators.GE, va)
+						.and(DoubleVector.fromArray(S, b, k).compare(VectorOperators.GE, vb))
+						.and(DoubleVector.fromArray(S, c, k).compare(VectorOperators.GE, vc));
+				if (m.anyTrue())
+					n = vectorOps.filterScalar(a, b, c, k, k + S.length(), va, vb, vc, le, out, n);
+			}
+		}
+		return vectorOps.filterScalar(a, b, c, k, to, va, vb, vc, le, out, n);
+	}
+}
@@ -6,18 +6,93 @@ import java.util.ArrayList;
 public class Main {
 
 	public static void main(String[] args) throws IOException {
+		// usage: Main [instance] [-checkpoint file] [-resume] [-time seconds] [-nodes n] [-gap g]
+		//             [-ls threads]                 (local search threads, default 0 = none)
+		//             [-async]                      (pricing pipelined with the LP, see asyncPricer)
+		//             [-dssr]                       (decremental state-space relaxation in the SPPRC)
+		//             [-reuse]                      (CG: the SPPRC resumes its last search with the new duals)
+		//             [-enum routes]                (small gap: enumerate up to this many routes and finish by a MIP,
+		//                                            see enumSPPRC; 0 = never)
+		//             [-decompose clients]          (large instances: all the clients of the file, in clusters
+		//                                            of about this size solved in parallel, see decomposition)
+		//        Main [instance] -coordinator port      (distributed B&B, see coordinator)
+		//        Main [instance] -worker host port
+		String inputPath = "dataset/c109.TXT";
+		String checkpointPath = null;
+		boolean resume = false, async = false, dssr = false, reuse = false;
+		int timeLimit = 0, nodeLimit = 0, lsThreads = -1, clusterSize = 0, enumLimit = 0;
+		double gap = -1;
+		int coordinatorPort = -1, workerPort = -1;
+		String workerHost = null;
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-checkpoint") && (i + 1 < args.length))
+				checkpointPath = args[++i];
+			else if (args[i].equals("-resume"))
+				resume = true;
+			else if (args[i].equals("-time") && (i + 1 < args.length))
+				timeLimit = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-nodes") && (i + 1 < args.length))
+				nodeLimit = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-gap") && (i + 1 < args.length))
+				gap = Double.parseDouble(args[++i]);
+			else if (args[i].equals("-ls") && (i + 1 < args.length))
+				lsThreads = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-async"))
+				async = true;
+			else if (args[i].equals("-dssr"))
+				dssr = true;
+			else if (args[i].equals("-reuse"))
+				reuse = true;
+			else if (args[i].equals("-enum") && (i + 1 < args.length))
+				enumLimit = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-decompose") && (i + 1 < args.length))
+				clusterSize = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-coordinator") && (i + 1 < args.length))
+				coordinatorPort = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-worker") && (i + 2 < args.length)) {
+				workerHost = args[++i];
+				workerPort = Integer.parseInt(args[++i]);
+			}
+			else
+				inputPath = args[i];
+		}
+
 		branchandbound bp = new branchandbound();
 		paramsVRP instance = new paramsVRP();
-		instance.initParams("dataset/c109.TXT");
+		instance.checkpointPath = checkpointPath;
+		instance.timeLimit = timeLimit;
+		instance.nodeLimit = nodeLimit;
+		if (gap >= 0)
+			instance.gap = gap;
+		if (lsThreads >= 0)
+			instance.lsThreads = lsThreads;
+		instance.asyncPricing = async;
+		instance.dssr = dssr;
+		instance.reuseLabels = reuse;
+		instance.enumLimit = enumLimit;
+		if (clusterSize > 0)
+			instance.nbclients = 0; // all the clients of the file (see paramsVRP.initParams)
+		instance.initParams(inputPath);
 		ArrayList<route> initRoutes = new ArrayList<route>();
 		ArrayList<route> bestRoutes = new ArrayList<route>();
 
-		bp.BBNode(instance, initRoutes, null, bestRoutes, 0);
+		if (workerHost != null) {
+			worker.run(workerHost, workerPort, instance);
+			return;
+		}
+		if (clusterSize > 0)
+			bestRoutes = new decomposition(instance, clusterSize, Runtime.getRuntime().availableProcessors()).solve();
+		else if (coordinatorPort >= 0)
+			bestRoutes = new coordinator(instance).run(coordinatorPort);
+		else if (resume && (checkpointPath != null) && new java.io.File(checkpointPath).exists())
+			bp.resume(instance, checkpointPath, bestRoutes);
+		else
+			bp.BBNode(instance, initRoutes, null, bestRoutes, 0);
 		double optCost = 0;
 		System.out.println();
 		System.out.println("solution >>>");
 		for (route bestRoute : bestRoutes) {
-			System.out.println(bestRoute.path);
+			System.out.println(bestRoute);
 			optCost += bestRoute.cost;
 		}
 
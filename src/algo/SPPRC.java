@@ -1,7 +1,9 @@
 package algo;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.Queue;
 import java.util.TreeSet;
 
 // shortest path with resource constraints
@@ -18,13 +20,41 @@ import java.util.TreeSet;
 // P: sorted list (TreeSet) => one dimensional unbounded vector
 //		sorted list containing the indices of the processed labels ending at the depot with a negative cost
 //
-// city2labels: matrix (array of ArrayList) => nbClients x unbounded
-//		for each city, the list of (indices of the) labels attached to this city/vertex
-//		before processing a label at vertex i, we compare pairwise all labels at the same vertex to remove the dominated ones
+// city2labels: array of labelBucket => nbClients x unbounded
+//		for each city, the (indices of the) non-dominated labels attached to this city/vertex, sorted by cost
+//		a new label is only compared with the labels that can possibly dominate it (lower or equal cost)
+//		and with the labels it can possibly dominate (higher or equal cost)
+//
+// the visited vertices of a label are stored as a bitset (long[]), one bit per vertex
+//
+// DSSR (decremental state-space relaxation, userParam.dssr): the elementarity is only enforced
+// for the critical clients (userParam.critical), the other ones can be visited several times
+// => smaller bitsets, much more dominance. The routes visiting a client twice are not columns:
+// these clients become critical and the SPPRC is solved again, until the best route is
+// elementary. The critical set is kept for the next CG iterations and the next B&B nodes
+// (at the start: no critical client; with loose time windows, only a few ones ever cycle)
 
 public class SPPRC {
 	paramsVRP userParam;
 	ArrayList<label> labels;
+	long deadline = 0; // stop the search after this time (ms), 0 = no limit
+	int maxSol = 0; // stop the search after maxSol routes to the depot, 0 = 2 x nbRoute
+	double maxOverlap = 1.0; // reject a route sharing more than this part of its clients with a better one (1 = keep all)
+	double minCost; // result: most negative reduced cost of a route found (0 if none)
+	boolean exact;  // result: all the labels were processed => minCost is the minimum reduced cost
+	double[][] cost = null; // reduced costs of the edges (null: userParam.cost; a pricer thread has its own, see asyncPricer)
+	volatile boolean abort = false; // set by another thread: stop as soon as possible (then exact = false)
+	Queue<route> stream = null; // if not null, each route with a negative reduced cost is also added here when found
+	boolean keepAll = false; // keep the labels dominated at their creation too, to resume the search (see resume)
+
+	// state of the search, kept to resume it with other costs
+	TreeSet<Integer> U;             // unprocessed labels
+	TreeSet<Integer> P;             // processed labels at the depot with a negative cost
+	labelBucket[] city2labels;      // non-dominated labels of each vertex
+	long[] critical;                // userParam.critical when the search started (DSSR)
+	long[] elem;                    // vertices which can't be visited twice
+	long[] elemClients;             // the same, only the clients
+	int nbWords;                    // size of the bitsets
 
 	class label {
 		// we use a labelling algorithm.
@@ -33,12 +63,14 @@ public class SPPRC {
 		public int city;                // current vertex
 		public int indexPrevLabel;    // previous label in the same path (i.e. previous vertex in the same path with the state of the resources)
 		public double cost;                // first resource: cost (e.g. distance or strict travel time)
-		public float tTime;                // second resource: travel time along the path (including wait time and service time)
-		public double demand;                // third resource: demand,i.e. total quantity delivered to the clients encountered on this path
+		public int tTime;                // second resource: travel time along the path (including wait time and service time), in tenths (paramsVRP.SCALE)
+		public int demand;                // third resource: demand,i.e. total quantity delivered to the clients encountered on this path
 		public boolean dominated;            // is this label dominated by another one? i.e. if dominated, forget this path.
-		public boolean[] vertexVisited;
+		public long[] vertexVisited;        // bitset of the vertices visited (or unreachable) along this path
+		public int nbVisited;                // number of bits set in vertexVisited (cheap filter before the subset test)
+		public boolean extended;             // have the successors of this label been generated?
 
-		label(int a1, int a2, double a3, float a4, double a5, boolean a6, boolean[] a7) {
+		label(int a1, int a2, double a3, int a4, int a5, boolean a6, long[] a7) {
 			city = a1;
 			indexPrevLabel = a2;
 			cost = a3;
@@ -46,9 +78,140 @@ public class SPPRC {
 			demand = a5;
 			dominated = a6;
 			vertexVisited = a7;
+			nbVisited = 0;
+			for (long w : a7)
+				nbVisited += Long.bitCount(w);
+		}
+	}
+
+	class labelBucket {
+		// non-dominated labels attached to one vertex, sorted by cost (the primary resource)
+		// a label can only be dominated by the labels on its left (lower or equal cost)
+		// and can only dominate the labels on its right (higher or equal cost)
+		// the resources are copied in parallel arrays (structure of arrays, integers stored exactly in doubles): the dominance
+		// test on the resources is done on a whole range of labels at once (see vectorOps.filter),
+		// the bitsets are only compared for the labels passing this first test
+		int[] idx = new int[16];
+		double[] cost = new double[16];
+		double[] tTime = new double[16];
+		double[] demand = new double[16];
+		double[] nbVisited = new double[16];
+		int size = 0;
+
+		// first position with a cost strictly larger than c
+		int upper(double c) {
+			int lo = 0, hi = size;
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (cost[mid] <= c)
+					lo = mid + 1;
+				else
+					hi = mid;
+			}
+			return lo;
+		}
+
+		// first position with a cost larger or equal to c
+		int lower(double c) {
+			int lo = 0, hi = size;
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (cost[mid] < c)
+					lo = mid + 1;
+				else
+					hi = mid;
+			}
+			return lo;
+		}
+
+		// is there a label in this bucket dominating a path with these resources?
+		boolean isDominated(double c, int tt, int d, long[] visited, int nb) {
+			int end = upper(c);
+			int n = vectorOps.filter(tTime, demand, nbVisited, 0, end, tt, d, nb, true, candidates(end));
+			for (int k = 0; k < n; k++)
+				if (isSubset(labels.get(idx[cand[k]]).vertexVisited, visited))
+					return true;
+			return false;
+		}
+
+		// remove (and flag) all the labels dominated by la
+		void removeDominatedBy(label la, TreeSet<Integer> U) {
+			int from = lower(la.cost);
+			int n = vectorOps.filter(tTime, demand, nbVisited, from, size,
+					la.tTime, la.demand, la.nbVisited, false, candidates(size));
+			int w = from;
+			int c = 0;
+			for (int k = from; (k < size) && (c < n); k++) {
+				if (k == cand[c]) {
+					c++;
+					label lb = labels.get(idx[k]);
+					if (isSubset(la.vertexVisited, lb.vertexVisited)) {
+						lb.dominated = true;
+						U.remove(idx[k]);
+						continue;
+					}
+				}
+				move(k, w++);
+			}
+			if (c > 0) {
+				// shift the end of the bucket (after the last candidate)
+				for (int k = cand[n - 1] + 1; k < size; k++)
+					move(k, w++);
+				size = w;
+			}
+		}
+
+		void move(int from, int to) {
+			if (from != to) {
+				idx[to] = idx[from];
+				cost[to] = cost[from];
+				tTime[to] = tTime[from];
+				demand[to] = demand[from];
+				nbVisited[to] = nbVisited[from];
+			}
+		}
+
+		void insert(int labIdx) {
+			if (size == idx.length) {
+				idx = Arrays.copyOf(idx, 2 * size);
+				cost = Arrays.copyOf(cost, 2 * size);
+				tTime = Arrays.copyOf(tTime, 2 * size);
+				demand = Arrays.copyOf(demand, 2 * size);
+				nbVisited = Arrays.copyOf(nbVisited, 2 * size);
+			}
+			label la = labels.get(labIdx);
+			int pos = upper(la.cost);
+			System.arraycopy(idx, pos, idx, pos + 1, size - pos);
+			System.arraycopy(cost, pos, cost, pos + 1, size - pos);
+			System.arraycopy(tTime, pos, tTime, pos + 1, size - pos);
+			System.arraycopy(demand, pos, demand, pos + 1, size - pos);
+			System.arraycopy(nbVisited, pos, nbVisited, pos + 1, size - pos);
+			idx[pos] = labIdx;
+			cost[pos] = la.cost;
+			tTime[pos] = la.tTime;
+			demand[pos] = la.demand;
+			nbVisited[pos] = la.nbVisited;
+			size++;
 		}
 	}
 
+	// buffer for the positions returned by vectorOps.filter (shared by all the buckets)
+	int[] cand = new int[16];
+
+	int[] candidates(int n) {
+		if (cand.length < n)
+			cand = new int[Math.max(n, 2 * cand.length)];
+		return cand;
+	}
+
+	// is every vertex of a also in b?
+	static boolean isSubset(long[] a, long[] b) {
+		for (int w = 0; w < a.length; w++)
+			if ((a[w] & ~b[w]) != 0)
+				return false;
+		return true;
+	}
+
 	class MyLabelComparator implements Comparator<Integer> {
 		// the U treeSet is an ordered list
 		// to maintain the order, we need to define a comparator: cost is the main criterium
@@ -64,24 +227,21 @@ public class SPPRC {
 				return 1;
 			else {
 				if (A.city == B.city) {
-					if (A.tTime - B.tTime < -1e-7)
-						return -1;
-					else if (A.tTime - B.tTime > 1e-7)
-						return 1;
-					else if (A.demand - B.demand < -1e-7)
-						return -1;
-					else if (A.demand - B.demand > 1e-7)
-						return 1;
+					// (integer resources: exact comparisons)
+					if (A.tTime != B.tTime)
+						return (A.tTime < B.tTime) ? -1 : 1;
+					else if (A.demand != B.demand)
+						return (A.demand < B.demand) ? -1 : 1;
 					else {
-						int i = 0;
-						while (i < userParam.nbclients + 2) {
-							if (A.vertexVisited[i] != B.vertexVisited[i]) {
-								if (A.vertexVisited[i])
+						// the first vertex visited by only one of the two paths decides
+						for (int w = 0; w < A.vertexVisited.length; w++) {
+							long diff = A.vertexVisited[w] ^ B.vertexVisited[w];
+							if (diff != 0) {
+								if ((A.vertexVisited[w] & Long.lowestOneBit(diff)) != 0)
 									return -1;
 								else
 									return 1;
 							}
-							i++;
 						}
 						return 0;
 					}
@@ -95,105 +255,94 @@ public class SPPRC {
 
 
 	public void shortestPath(paramsVRP userParamArg, ArrayList<route> routes, int nbRoute) {
-		label current;
-		int i, j, idx, nbsol, maxSol;
-		double d, d2;
-		int[] checkDom;
-		float tt, tt2;
-		Integer currentidx;
-
 		this.userParam = userParamArg;
+		int first = routes.size();
+		while (!search(routes, nbRoute)) {
+			// DSSR: the best route was not elementary, the critical set has grown => again
+			routes.subList(first, routes.size()).clear();
+		}
+	}
+
+	// one labelling, returns false if it must be done again (DSSR, see above)
+	boolean search(ArrayList<route> routes, int nbRoute) {
+		int i;
+
 		// unprocessed labels list => ordered TreeSet List (?optimal:  need to be sorted like this?)
-		TreeSet<Integer> U = new TreeSet<Integer>(new MyLabelComparator());   // unprocessed labels list
+		U = new TreeSet<Integer>(new MyLabelComparator());   // unprocessed labels list
 
 		// processed labels list => ordered TreeSet List 
-		TreeSet<Integer> P = new TreeSet<Integer>(new MyLabelComparator());   // processed labels list
+		P = new TreeSet<Integer>(new MyLabelComparator());   // processed labels list
 
 		// array of labels
 		labels = new ArrayList<label>(2 * userParam.nbclients); // initial size at least larger than nb clients
-		boolean[] cust = new boolean[userParam.nbclients + 2];
-		cust[0] = true;
-		for (i = 1; i < userParam.nbclients + 2; i++) cust[i] = false;
+		nbWords = (userParam.nbclients + 2 + 63) >>> 6;
+		long[] cust = new long[nbWords];
+		cust[0] = 1L;  // the path starts at the depot (client 0)
 		labels.add(new label(0, -1, 0.0, 0, 0, false, cust));    // first label: start from depot (client 0)
+		long[] clients = new long[nbWords];  // bitset of the clients 1..nbclients
+		for (i = 1; i <= userParam.nbclients; i++)
+			clients[i >>> 6] |= 1L << i;
+		// vertices which can't be visited twice: all of them, or only the critical ones with DSSR
+		// (read once: the set is replaced, not changed, when it grows)
+		elem = new long[nbWords];
+		critical = userParam.critical;
+		for (int w = 0; w < nbWords; w++)
+			elem[w] = !userParam.dssr ? -1L : (critical == null) ? 0L : critical[w];
+		elem[0] |= 1L; // the depot
+		elemClients = new long[nbWords];
+		for (int w = 0; w < nbWords; w++)
+			elemClients[w] = clients[w] & elem[w];
 		U.add(0);
 
-		// for each city, an array with the index of the corresponding labels (for dominance)
-		checkDom = new int[userParam.nbclients + 2];
-		ArrayList<Integer>[] city2labels = new ArrayList[userParam.nbclients + 2];
-		for (i = 0; i < userParam.nbclients + 2; i++) {
-			city2labels[i] = new ArrayList<Integer>();
-			checkDom[i] = 0;  // index of the first label in city2labels that needs to be checked for dominance (last labels added)
-		}
-		city2labels[0].add(0);
+		// for each city, the non-dominated labels sorted by cost (for dominance)
+		city2labels = new labelBucket[userParam.nbclients + 2];
+		for (i = 0; i < userParam.nbclients + 2; i++)
+			city2labels[i] = new labelBucket();
+		city2labels[0].insert(0);
+		return extend(routes, nbRoute);
+	}
+
+	// the labelling itself, from the labels in U, then the routes from the labels in P
+	// returns false if it must be done again (DSSR)
+	boolean extend(ArrayList<route> routes, int nbRoute) {
+		label current;
+		int i, j, nbsol;
+		int d, d2, tt, tt2;
+		Integer currentidx;
 
+		double[][] rc = (cost != null) ? cost : userParam.cost;
 		nbsol = 0;
-		maxSol = 2 * nbRoute;
+		if (maxSol <= 0)
+			maxSol = 2 * nbRoute;
+		int nbPolled = 0;
+		boolean stopped = false;
+		minCost = 0.0;
 		while ((U.size() > 0) && (nbsol < maxSol)) {
 			// second term if we want to limit to the first solutions encountered to speed up the SPPRC (perhaps not the BP)
 			// remark: we'll keep only nbRoute, but we compute 2 x nbRoute!
 			// It makes a huge difference => we'll keep the most negative ones
 			// this is something to analyze further!  how many solutions to keep and which ones?
 			// process one label => get the index AND remove it from U
+			// (dominated labels are removed from U as soon as they are dominated)
 			currentidx = U.pollFirst();
 			current = labels.get(currentidx);
-
-			// check for dominance
-			// code not fully optimized: 
-			int l1, l2;
-			boolean pathdom;
-			label la1, la2;
-			ArrayList<Integer> cleaning = new ArrayList<Integer>();
-			// check for dominance between the labels added since the last time
-			// we came here with this city and all the other ones
-			for (i = checkDom[current.city]; i < city2labels[current.city].size(); i++) {
-				for (j = 0; j < i; j++) {
-					l1 = city2labels[current.city].get(i);
-					l2 = city2labels[current.city].get(j);
-					la1 = labels.get(l1);
-					la2 = labels.get(l2);
-					// could happen since we clean 'city2labels' thanks
-					// to 'cleaning' only after the double loop
-					if (!(la1.dominated || la2.dominated)) {
-						pathdom = true;
-						for (int k = 1; pathdom && (k < userParam.nbclients + 2); k++) {
-							//la1没有访问节点k 或者 la2访问了节点k
-							pathdom = (!la1.vertexVisited[k] || la2.vertexVisited[k]);
-						}
-						if (pathdom && (la1.cost <= la2.cost) && (la1.tTime <= la2.tTime) && (la1.demand <= la2.demand)) {
-							labels.get(l2).dominated = true;
-							U.remove((Integer) l2);
-							cleaning.add(l2);
-							pathdom = false;
-							//System.out.print(" ###Remove"+l2);
-						}
-						pathdom = true;
-						for (int k = 1; pathdom && (k < userParam.nbclients + 2); k++) {
-							//la2没有访问节点k或者la1访问了节点k
-							pathdom = (!la2.vertexVisited[k] || la1.vertexVisited[k]);
-						}
-						if (pathdom && (la2.cost <= la1.cost) && (la2.tTime <= la1.tTime) && (la2.demand <= la1.demand)) {
-							labels.get(l1).dominated = true;
-							U.remove(l1);
-							cleaning.add(l1);
-							//System.out.print(" ###Remove"+l1);
-							j = city2labels[current.city].size();
-						}
-					}
-				}
+			if (abort || ((deadline > 0) && ((++nbPolled & 1023) == 0) && (System.currentTimeMillis() > deadline))) {
+				stopped = true;
+				break;
 			}
 
-			for (Integer c : cleaning)
-				city2labels[current.city].remove((Integer) c);   // a little bit confusing but ok since c is an Integer and not an int!
-
-			cleaning = null;
-			checkDom[current.city] = city2labels[current.city].size();  // update checkDom: all labels currently in city2labels were checked for dom.
-
 			// expand REF
 			if (!current.dominated) {
 				//System.out.println("Label "+current.city+" "+current.indexPrevLabel+" "+current.cost+" "+current.ttime+" "+current.dominated);
 				if (current.city == userParam.nbclients + 1) { // shortest path candidate to the depot!
 					if (current.cost < -1e-7) {                // SP candidate for the column generation
+						minCost = Math.min(minCost, current.cost);
 						P.add(currentidx);
+						if (stream != null) {
+							int[] path = path(currentidx);
+							if (repeated(path) == null)
+								stream.add(new route(path, userParam));
+						}
 						nbsol = 0;
 						for (Integer labi : P) {
 							label s = labels.get(labi);
@@ -203,53 +352,76 @@ public class SPPRC {
 					}
 				} else {
 					// if not the depot, we can consider extensions of the path
-					for (i = 0; i < userParam.nbclients + 2; i++) {
+					// (only towards the successors kept by the preprocessing of paramsVRP)
+					for (int k = 0; k < userParam.succ[current.city].length; k++) {
+						i = userParam.succ[current.city][k];
 						// don't go back to a vertex already visited or along a forbidden edge
-						if ((!current.vertexVisited[i]) && (userParam.dist[current.city][i] < userParam.verybig - 1e-6)) {
+						if (((current.vertexVisited[i >>> 6] & (1L << i)) == 0) && (userParam.dist[current.city][i] < userParam.verybig - 1e-6)) {
 							// ttime
-							tt = (float) (current.tTime + userParam.ttime[current.city][i] + userParam.s[current.city]);
-							if (tt < userParam.a[i])
-								tt = userParam.a[i];
+							tt = current.tTime + userParam.ttimeInt[current.city][i] + userParam.sInt[current.city];
+							if (tt < userParam.aInt[i])
+								tt = userParam.aInt[i];
 							// demand
-							d = current.demand + userParam.d[i];
+							d = current.demand + userParam.demand[i];
 							//System.out.println("  -- "+i+" d:"+d+" t:"+tt);
 
 							// is feasible?
-							if ((tt <= userParam.b[i]) && (d <= userParam.capacity)) {
-								idx = labels.size();
-								boolean[] newCust = new boolean[userParam.nbclients + 2];
-								System.arraycopy(current.vertexVisited, 0, newCust, 0, userParam.nbclients + 2);
-								newCust[i] = true;
+							if ((tt <= userParam.bInt[i]) && (d <= userParam.capacity)) {
+								long[] newCust = current.vertexVisited.clone();
+								newCust[i >>> 6] |= (1L << i) & elem[i >>> 6];
 								//speedup: third technique - Feillet 2004 as mentioned in Laporte's paper
-								for (j = 1; j <= userParam.nbclients; j++) {
-									if (!newCust[j]) {
-										tt2 = (float) (tt + userParam.ttime[i][j] + userParam.s[i]);
-										d2 = d + userParam.d[j];
-										if ((tt2 > userParam.b[j]) || (d2 > userParam.capacity)) {
-											newCust[j] = true;  // useless to visit this client
+								// the clients that are not successors of i can't be reached anymore
+								// (DSSR: only the critical ones are marked, the others are not in the state)
+								for (int w = 0; w < nbWords; w++)
+									newCust[w] |= elemClients[w] & ~userParam.reach[i][w];
+								for (int k2 = 0; k2 < userParam.succ[i].length; k2++) {
+									j = userParam.succ[i][k2];
+									if ((j <= userParam.nbclients) && ((elemClients[j >>> 6] & ~newCust[j >>> 6] & (1L << j)) != 0)) {
+										tt2 = tt + userParam.ttimeInt[i][j] + userParam.sInt[i];
+										d2 = d + userParam.demand[j];
+										if ((tt2 > userParam.bInt[j]) || (d2 > userParam.capacity)) {
+											newCust[j >>> 6] |= 1L << j;  // useless to visit this client
 										}
 									}
 								}
-								labels.add(new label(i, currentidx, current.cost + userParam.cost[current.city][i], tt, d, false, newCust));    // first label: start from depot (client 0)
-								if (!U.add((Integer) idx)) {
-									// only happens if there exists already a label at this vertex with the same cost, time and demand and visiting the same cities before
-									// It can happen with some paths where the order of the cities is permuted
-									labels.get(idx).dominated = true; // => we can forget this label and keep only the other one
-								} else {
-									city2labels[i].add(idx);
+								double c = current.cost + rc[current.city][i];
+								int nbVisited = 0;
+								for (long w : newCust)
+									nbVisited += Long.bitCount(w);
+								// dominated (or duplicated: same cost, time, demand and visited cities,
+								// as it happens with some paths where the order of the cities is permuted)
+								// => we can forget this path and keep only the other one
+								// (keepAll: kept anyway, flagged dominated, as it may not be with other costs)
+								boolean dominated = city2labels[i].isDominated(c, tt, d, newCust, nbVisited);
+								if (!dominated || keepAll) {
+									int idx = labels.size();
+									label newLabel = new label(i, currentidx, c, tt, d, dominated, newCust);
+									labels.add(newLabel);
+									if (!dominated) {
+										city2labels[i].removeDominatedBy(newLabel, U);
+										city2labels[i].insert(idx);
+										U.add(idx);
+									}
 								}
 							}
 						}
 					}
+					current.extended = true;
 				}
 			}
 		}
-		// clean
-		checkDom = null;
+
+		// early stop (maxSol or deadline): a better route may exist
+		exact = (U.size() == 0) && !stopped;
 
 		// filtering: find the path from depot to the destination
+		// (the most negative first: the best route is always kept)
 		Integer lab;
 		i = 0;
+		int first = routes.size();
+		boolean best = true;      // next route is the best one
+		boolean again = false;    // DSSR: the best route is not elementary
+		long[] newCritical = null; // DSSR: clients visited twice by the routes met
 		while ((i < nbRoute) && ((lab = P.pollFirst()) != null)) {
 			label s = labels.get(lab);
 			if (!s.dominated) {
@@ -258,20 +430,120 @@ public class SPPRC {
 					//        	if(s.cost > 0) {
 					//        		System.out.println("warning >>>>>>>>>>>>>>>>>>>>");
 					//        	}
-					route newRoute = new route();
-					newRoute.setcost(s.cost);
-					newRoute.addcity(s.city);
-					int path = s.indexPrevLabel;
-					while (path >= 0) {
-						newRoute.addcity(labels.get(path).city);
-						path = labels.get(path).indexPrevLabel;
+					int[] path = path(lab);
+					long[] rep = repeated(path);
+					if (rep != null) {
+						// not a column (DSSR only)
+						if (newCritical == null)
+							newCritical = (critical == null) ? new long[nbWords] : critical.clone();
+						for (int w = 0; w < nbWords; w++)
+							newCritical[w] |= rep[w];
+						again |= best;
+						best = false;
+						continue;
+					}
+					best = false;
+					route r = new route(path, userParam);
+					if (isDiverse(r, routes, first)) {
+						routes.add(r);
+						i++;
 					}
-					newRoute.switchpath();
-					routes.add(newRoute);
-					i++;
 				}
 			}
 
 		}
+		if (newCritical != null)
+			userParam.critical = newCritical;
+		// (after an early stop, the routes found are kept: minCost is not exact anyway)
+		return !again || stopped;
+	}
+
+	// clients visited more than once by the path (bitset), null if it is elementary
+	long[] repeated(int[] path) {
+		long[] seen = new long[(userParam.nbclients + 2 + 63) >>> 6];
+		long[] rep = null;
+		for (int city : path) {
+			if ((seen[city >>> 6] & (1L << city)) != 0) {
+				if (rep == null)
+					rep = new long[seen.length];
+				rep[city >>> 6] |= 1L << city;
+			}
+			seen[city >>> 6] |= 1L << city;
+		}
+		return rep;
+	}
+
+	// follow the previous labels back to the depot, filling the path from its end
+	int[] path(int lab) {
+		int size = 0;
+		for (int l = lab; l >= 0; l = labels.get(l).indexPrevLabel)
+			size++;
+		int[] path = new int[size];
+		for (int l = lab; l >= 0; l = labels.get(l).indexPrevLabel)
+			path[--size] = labels.get(l).city;
+		return path;
+	}
+
+	// ---- resume of the last search with other costs (see columngen, paramsVRP.reuseLabels)
+	// the time, the demand and the visited clients of a label don't depend on the duals: only its
+	// cost does, through cost[i][j] = dist[i][j] - pi[i-1]. With new duals, the labels of the last
+	// search are re-costed in place (a label is after its previous label in the list), the dominance
+	// is done again on all of them, and the labelling goes on from the non-dominated labels which
+	// were not extended yet: the successors of the extended ones are already in the list (keepAll),
+	// with their new cost. Same routes and minCost as a new search, without generating all the labels again
+	// returns false if the labels can't be used (no search yet, DSSR with another critical set): a new search is needed
+	public boolean resume(ArrayList<route> routes, int nbRoute) {
+		if ((labels == null) || !keepAll || (userParam.critical != critical))
+			return false;
+		double[][] rc = (cost != null) ? cost : userParam.cost;
+		for (int l = 1; l < labels.size(); l++) {
+			label la = labels.get(l);
+			label prev = labels.get(la.indexPrevLabel);
+			la.cost = prev.cost + rc[prev.city][la.city];
+			la.dominated = false;
+		}
+
+		// dominance with the new costs
+		U = new TreeSet<Integer>(new MyLabelComparator());
+		P = new TreeSet<Integer>(new MyLabelComparator());
+		for (labelBucket b : city2labels)
+			b.size = 0;
+		for (int l = 0; l < labels.size(); l++) {
+			label la = labels.get(l);
+			labelBucket b = city2labels[la.city];
+			if (b.isDominated(la.cost, la.tTime, la.demand, la.vertexVisited, la.nbVisited))
+				la.dominated = true;
+			else {
+				b.removeDominatedBy(la, U);
+				b.insert(l);
+				if (!la.extended)
+					U.add(l); // (the labels at the depot too: back to P)
+			}
+		}
+
+		int first = routes.size();
+		if (!extend(routes, nbRoute)) {
+			// DSSR: the critical set has grown => a new search
+			routes.subList(first, routes.size()).clear();
+			while (!search(routes, nbRoute))
+				routes.subList(first, routes.size()).clear();
+		}
+		return true;
+	}
+
+	// diversity: the route doesn't share more than maxOverlap of its clients
+	// with one of the (better) routes already kept
+	boolean isDiverse(route r, ArrayList<route> routes, int first) {
+		if (maxOverlap >= 1.0)
+			return true;
+		for (int k = first; k < routes.size(); k++) {
+			route o = routes.get(k);
+			int common = 0;
+			for (int w = 0; w < r.clients.length; w++)
+				common += Long.bitCount(r.clients[w] & o.clients[w]);
+			if (common > maxOverlap * Math.min(r.size(), o.size()))
+				return false;
+		}
+		return true;
 	}
 }
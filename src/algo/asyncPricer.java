@@ -0,0 +1,149 @@
+package algo;
+
+// pricing in its own thread, pipelined with the LP of the column generation (see columngen)
+// the master publishes the duals of each LP; the pricer runs the SPPRC on the latest duals
+// and streams the routes with a negative reduced cost as soon as they reach the depot.
+// the master adds a batch of them and solves the LP again while the pricer goes on with
+// the (slightly stale) duals it started with; the pricer only restarts when the new duals
+// are far enough from them (restartGap), otherwise it finishes and takes the latest ones
+//
+// a run on some duals which is not aborted tells: minimum reduced cost for these duals
+// (Lagrangian bound, valid for any duals) and, if nothing is found on the duals of the
+// current LP, the CG is optimal => the last run is always an exact pricing on the final duals
+
+import java.util.ArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class asyncPricer implements Runnable {
+	static final double restartGap = 0.05; // restart if the duals moved by more than 5% (L1 norm)
+
+	paramsVRP userParam;
+	int nbRoute, maxSol; // as for SPPRC.shortestPath (fixed for the whole CG)
+	long deadline;
+	LinkedBlockingQueue<route> routes; // stream of routes with a negative reduced cost (for some duals)
+	double[][] cost; // reduced costs of the running SPPRC (userParam.cost belongs to the master)
+	Thread thread;
+
+	// shared with the master (guarded by this)
+	double[] duals = null;  // latest duals published
+	int version = 0;        // number of duals published
+	double[] used = null;   // duals of the running SPPRC
+	SPPRC running = null;
+	int doneVersion = 0;    // last version priced up to the end (not aborted)
+	boolean doneExact;      // its SPPRC processed all the labels
+	double doneMinCost;     // its minimum reduced cost
+	double doneDualSum;     // sum of its duals (objective of the dual)
+	boolean stop = false;
+	RuntimeException error = null;
+
+	public asyncPricer(paramsVRP userParam, int nbRoute, int maxSol, long deadline) {
+		this.userParam = userParam;
+		this.nbRoute = nbRoute;
+		this.maxSol = maxSol;
+		this.deadline = deadline;
+		routes = new LinkedBlockingQueue<route>();
+		cost = new double[userParam.nbclients + 2][];
+		for (int i = 0; i < userParam.nbclients + 2; i++)
+			cost[i] = userParam.dist[i].clone(); // rows 0 and nbclients+1: no dual
+		thread = new Thread(this, "pricer");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	// new duals (of the LP version returned)
+	public synchronized int publish(double[] pi) {
+		duals = pi;
+		version++;
+		if ((running != null) && (distance(pi, used) > restartGap))
+			running.abort = true;
+		notifyAll();
+		return version;
+	}
+
+	// relative L1 distance between two dual vectors
+	static double distance(double[] pi, double[] ref) {
+		double diff = 0, norm = 0;
+		for (int i = 0; i < pi.length; i++) {
+			diff += Math.abs(pi[i] - ref[i]);
+			norm += Math.abs(ref[i]);
+		}
+		return diff / Math.max(norm, 1e-6);
+	}
+
+	// next route of the stream, waiting at most waitMs ms, null if none
+	public route poll(long waitMs) {
+		try {
+			return routes.poll(waitMs, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+	}
+
+	// stop the thread (the current SPPRC is aborted) and wait for it
+	// (it reads userParam.dist, which is changed by the B&B after the CG)
+	public void shutdown() {
+		synchronized (this) {
+			stop = true;
+			if (running != null)
+				running.abort = true;
+			notifyAll();
+		}
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	public void run() {
+		try {
+			int v = 0;
+			while (true) {
+				double[] pi;
+				SPPRC sp;
+				synchronized (this) {
+					while (!stop && (version == v))
+						wait();
+					if (stop)
+						return;
+					pi = duals;
+					v = version;
+					sp = new SPPRC();
+					used = pi;
+					running = sp;
+				}
+
+				for (int i = 1; i < userParam.nbclients + 1; i++)
+					vectorOps.subtract(userParam.dist[i], 0, cost[i], 0, userParam.nbclients + 2, pi[i - 1]);
+				sp.cost = cost;
+				sp.stream = routes;
+				sp.deadline = deadline;
+				sp.maxSol = maxSol;
+				sp.shortestPath(userParam, new ArrayList<route>(), nbRoute);
+
+				synchronized (this) {
+					running = null;
+					if (!sp.abort) {
+						double sum = 0;
+						for (double p : pi)
+							sum += p;
+						doneVersion = v;
+						doneExact = sp.exact;
+						doneMinCost = sp.minCost;
+						doneDualSum = sum;
+						notifyAll();
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			// stopped
+		} catch (RuntimeException e) {
+			synchronized (this) {
+				error = e;
+				notifyAll();
+			}
+		}
+	}
+}
@@ -2,25 +2,76 @@ package algo;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 public class branchandbound {
+	static final double ENUMBACKOFF = 0.5; // too many routes enumerated: next try when the gap is halved
+
 	double lowerbound;
 	double upperbound;
+	int nbNodes; // number of nodes solved up to now
+	ArrayList<openNode> open; // nodes still to solve: the last one is solved first (diving strategy)
+	long lastCheckpoint; // time of the last checkpoint (ms)
+	long startTime; // start of the search (ms)
+	int stopStatus; // why the search stopped (see solveResult)
+	solveListener listener; // receives the progress of the search (can be null)
+	columnPool pool; // all the routes used or generated during the search (each one once)
+	pricingControl pricing; // columns per SPPRC call, adapted along the search
+	improver ls; // local search in background threads (null if none)
+	ArrayList<Integer> injected; // ids of the columns found by the local search, for the next node
+	nodeCache cache; // results of the nodes solved, by set of forbidden arcs (created at the first node)
+	double[] rootDuals; // duals of the root LP for the enumeration of the routes (null if none)
+	double rootBound; // Lagrangian bound of these duals
+	double enumNext; // gap of the next enumeration: a new one only when the gap is below this
 
 	public branchandbound() {
 		lowerbound = -1E10;
 		upperbound = 1E10;
+		nbNodes = 0;
+		open = new ArrayList<openNode>();
+		lastCheckpoint = System.currentTimeMillis();
+		startTime = lastCheckpoint;
+		stopStatus = solveResult.OPTIMAL;
+		listener = null;
+		pricing = new pricingControl();
+		pool = new columnPool();
+		ls = null;
+		injected = new ArrayList<Integer>();
+		cache = null;
+		rootDuals = null;
+		rootBound = -1E10;
+		enumNext = 1E10;
 	}
 
 	class treeBB {
 		// this is a linked tree list recording all the branching during Branch and Bound
 		treeBB father; // link to the node processed before branching
-		treeBB son0; // link to the son on the left of the tree (edge=0; first processed) => need it to compute the global lowerbound
 		int branchFrom; // we branch on edges between cities => city origin of the edge
 		int branchTo; // we branch on edges between cities => city destination of the edge
 		int branchValue; // we branch on edges between cities => value of the branching (remove edge=0; set edge=1)
 		double lowestValue; // lower bound on the solution if we start from this node (i.e. looking only down for this tree)
-		boolean toplevel; // to compute the global lowerBound, need to know if everything above has been considered
+	}
+
+	class openNode {
+		// a node of the Branch and Bound waiting to be solved
+		// the columns are in the pool: a node only keeps their ids
+		// (the two sons share the ids of their father)
+		treeBB branching; // branching decisions leading to this node
+		int[] columns; // ids of the columns of the father, used to initialize the Column generation
+		double[] x; // once solved: value of the columns of the final LP (after the CG, same order)
+		nodeCache.entry warm; // result of the father (basis for a warm start), null if none
+		int depth;
+
+		openNode(treeBB branching, int[] columns, int depth) {
+			this.branching = branching;
+			this.columns = columns;
+			this.depth = depth;
+		}
+
+		// lower bound on the solutions below this node: the bound of the father
+		double bound() {
+			return (branching.father == null) ? -1E10 : branching.father.lowestValue;
+		}
 	}
 
 	public void EdgesBasedOnBranching(paramsVRP userParam, treeBB branching,
@@ -64,31 +115,276 @@ public class branchandbound {
 		// roads...)
 		// routes (input) : all (but we could decide to keep only a subset) the
 		// routes considered up to now (to initialize the Column generation process)
-		// branching (input): BB branching context information for the current node
+		// branching (input): BB branching context information for the first node
 		// to process (branching edge var, branching value, branching from...)
 		// bestRoutes (output): best solution encountered
+		if (branching == null) { // root node - first call
+			// first call - root node
+			treeBB newNode = new treeBB();
+			newNode.father = null;
+			newNode.branchFrom = -1;
+			newNode.branchTo = -1;
+			newNode.branchValue = -1;
+			newNode.lowestValue = -1E10;
+			branching = newNode;
+		}
+		open.add(new openNode(branching, pool.addAll(routes), depth));
+		startTime = System.currentTimeMillis();
+		return solveOpenNodes(userParam, bestRoutes);
+	}
+
+	public solveResult solve(paramsVRP userParam, ArrayList<route> initRoutes,
+	                         solveListener listener) throws IOException {
+		return solve(userParam, initRoutes, null, listener);
+	}
+
+	public solveResult solve(paramsVRP userParam, ArrayList<route> initRoutes,
+	                         ArrayList<route> incumbent, solveListener listener) throws IOException {
+		// anytime version of BBNode: stops at the first limit reached among
+		// paramsVRP.timeLimit, paramsVRP.nodeLimit and the relative gap paramsVRP.gap,
+		// and returns the best solution and bounds known at that time
+		// incumbent (input, can be null): a feasible solution used as first upper bound
+		ArrayList<route> bestRoutes = new ArrayList<route>();
+		if ((incumbent != null) && !incumbent.isEmpty()) {
+			double cost = 0.0;
+			for (route r : incumbent)
+				cost += r.getcost();
+			bestRoutes.addAll(incumbent);
+			upperbound = cost;
+		}
+		this.listener = listener;
+		stopStatus = solveResult.OPTIMAL;
+		boolean ok = BBNode(userParam, initRoutes, null, bestRoutes, 0);
+
+		solveResult result = new solveResult();
+		if (!ok)
+			result.status = solveResult.ERROR;
+		else if (stopStatus != solveResult.OPTIMAL)
+			result.status = stopStatus;
+		else if (bestRoutes.isEmpty())
+			result.status = solveResult.INFEASIBLE;
+		else
+			result.status = solveResult.OPTIMAL;
+		result.lowerbound = lowerbound;
+		result.upperbound = upperbound;
+		result.gap = (upperbound - lowerbound) / upperbound;
+		result.nbNodes = nbNodes;
+		result.elapsed = System.currentTimeMillis() - startTime;
+		result.routes = bestRoutes;
+		fire(progressEvent.END, 0, bestRoutes);
+		return result;
+	}
+
+	void fire(int type, int depth, ArrayList<route> bestRoutes) {
+		if (listener != null)
+			listener.progress(new progressEvent(type, lowerbound, upperbound, nbNodes,
+					open.size(), depth, System.currentTimeMillis() - startTime,
+					(bestRoutes == null) ? null : new ArrayList<route>(bestRoutes)));
+	}
+
+	public boolean resume(paramsVRP userParam, String checkpointPath,
+	                      ArrayList<route> bestRoutes) throws IOException {
+		// continue the Branch and Bound saved in a checkpoint file
+		checkpoint.load(this, userParam, checkpointPath, bestRoutes);
+		startTime = System.currentTimeMillis();
+		System.out.println("RESUME | Lower bound: " + lowerbound
+				+ " | Upper bound: " + upperbound + " | " + nbNodes + " nodes solved | "
+				+ open.size() + " open nodes");
+		return solveOpenNodes(userParam, bestRoutes);
+	}
+
+	// lower bound over all the nodes still to solve
+	double openBound() {
+		double bound = upperbound;
+		for (openNode node : open)
+			bound = Math.min(bound, node.bound());
+		return bound;
+	}
+
+	boolean solveOpenNodes(paramsVRP userParam, ArrayList<route> bestRoutes)
+			throws IOException {
+		if ((userParam.lsThreads > 0) && (ls == null))
+			ls = new improver(userParam, userParam.lsThreads);
+		while (!open.isEmpty()) {
+			// check first that we need to solve this node. Not the case if we have
+			// already found a solution within the gap precision
+			if ((upperbound - lowerbound) / upperbound < userParam.gap) {
+				open.clear();
+				break;
+			}
+			// anytime limits: keep the open nodes (and the checkpoint) to continue later
+			if ((userParam.timeLimit > 0)
+					&& (System.currentTimeMillis() - startTime >= 1000L * userParam.timeLimit)) {
+				stopStatus = solveResult.TIME_LIMIT;
+				break;
+			}
+			if ((userParam.nodeLimit > 0) && (nbNodes >= userParam.nodeLimit)) {
+				stopStatus = solveResult.NODE_LIMIT;
+				break;
+			}
+			openNode node = open.remove(open.size() - 1);
+			if (!solveNode(userParam, node, bestRoutes))
+				return false;
+			if (open.contains(node))
+				continue; // CG stopped by the time limit: the node is back in the open nodes, not solved
+			nbNodes++;
+			improvements(bestRoutes, node.depth);
+			if (enumerate(userParam, bestRoutes))
+				open.clear(); // solved
+			lowerbound = openBound();
+			fire(progressEvent.NODE, node.depth, null);
+
+			if ((userParam.checkpointPath != null) && (userParam.checkpointInterval > 0)
+					&& (System.currentTimeMillis() - lastCheckpoint >= 1000L * userParam.checkpointInterval)) {
+				checkpoint.save(this, userParam, userParam.checkpointPath, bestRoutes);
+				lastCheckpoint = System.currentTimeMillis();
+			}
+		}
+		if (ls != null) {
+			// last solutions of the local search
+			ls.shutdown(improver.MAXTIME);
+			improvements(bestRoutes, 0);
+			ls = null;
+		}
+		lowerbound = Math.min(upperbound, Math.max(lowerbound, openBound()));
+		if (userParam.checkpointPath != null)
+			checkpoint.save(this, userParam, userParam.checkpointPath, bestRoutes);
+		return true;
+	}
+
+	// solutions improved by the local search: new columns, and perhaps a new incumbent
+	void improvements(ArrayList<route> bestRoutes, int depth) {
+		ArrayList<route> sol;
+		while ((ls != null) && ((sol = ls.poll()) != null)) {
+			double cost = 0.0;
+			for (route r : sol) {
+				cost += r.getcost();
+				injected.add(pool.add(r));
+			}
+			if (cost < upperbound - 1e-6) {
+				upperbound = cost;
+				bestRoutes.clear();
+				bestRoutes.addAll(sol);
+				System.out.println("LS | Lower bound: " + lowerbound + " | Upper bound: " + upperbound
+						+ " | Gap: " + ((upperbound - lowerbound) / upperbound));
+				fire(progressEvent.INCUMBENT, depth, bestRoutes);
+				ls.submit(paths(bestRoutes)); // perhaps more from there
+			}
+		}
+	}
+
+	// small gap: all the routes which can be in a solution better than the incumbent
+	// are enumerated (see enumSPPRC) and the MIP on these routes gives the optimal solution
+	// returns true if the problem is solved, false to go on with the B&B
+	// only when the gap of the root, (UB - root bound) / UB, is below userParam.enumGap; after an
+	// attempt, a new one only with a smaller gap (ENUMBACKOFF x the gap if there were too many routes)
+	boolean enumerate(paramsVRP userParam, ArrayList<route> bestRoutes) {
+		if ((rootDuals == null) || (userParam.enumLimit <= 0) || open.isEmpty())
+			return false;
+		double gap = (upperbound - rootBound) / upperbound;
+		if ((gap >= userParam.enumGap) || (gap >= enumNext - 1e-12))
+			return false;
+		enumNext = gap;
+		long t0 = System.currentTimeMillis();
+		enumSPPRC en = new enumSPPRC(userParam.enumLimit);
+		if (userParam.timeLimit > 0)
+			en.deadline = startTime + 1000L * userParam.timeLimit;
+		// the costs are on a 0.1 grid: a better solution costs at most upperbound - 0.1
+		ArrayList<route> routes = en.enumerate(userParam, rootDuals, upperbound - 0.1 - rootBound);
+		if (routes == null) {
+			enumNext = ENUMBACKOFF * gap;
+			System.out.println("ENUM | more than " + userParam.enumLimit + " routes: go on with the B&B");
+			return false;
+		}
+		setPartitioning mip = new setPartitioning();
+		if (userParam.timeLimit > 0)
+			mip.timeLimit = Math.max(1.0, userParam.timeLimit - (System.currentTimeMillis() - startTime) / 1000.0);
+		ArrayList<route> sol = mip.solve(userParam, routes, upperbound - 0.05);
+		System.out.println("ENUM | " + routes.size() + " routes (" + en.nbLabels + " labels) | MIP: "
+				+ ((sol == null) ? "no better solution" : ("" + mip.obj)) + " | "
+				+ (System.currentTimeMillis() - t0) + " ms");
+		if ((sol != null) && (mip.obj < upperbound - 1e-6)) {
+			upperbound = mip.obj;
+			bestRoutes.clear();
+			bestRoutes.addAll(sol);
+			for (route r : sol)
+				injected.add(pool.add(r));
+			fire(progressEvent.INCUMBENT, 0, bestRoutes);
+			if (ls != null)
+				ls.submit(paths(bestRoutes));
+		}
+		if (!mip.optimal)
+			return false;
+		lowerbound = upperbound;
+		System.out.println("ENUM | optimal: " + upperbound);
+		return true;
+	}
+
+	static ArrayList<int[]> paths(ArrayList<route> routes) {
+		ArrayList<int[]> paths = new ArrayList<int[]>(routes.size());
+		for (route r : routes)
+			paths.add(r.path);
+		return paths;
+	}
+
+	boolean solveNode(paramsVRP userParam, openNode node, ArrayList<route> bestRoutes)
+			throws IOException {
+		// solve one node and push its sons on the list of the open nodes
 		int i, j, bestEdge1, bestEdge2, prevcity, city, bestVal;
 		double coef, bestObj, change, CGobj;
 		boolean feasible;
+		treeBB branching = node.branching;
+		int depth = node.depth;
 
 		try {
+			// set the dist matrix for this node: reinitialize it and apply all the
+			// branching decisions from this node up to the root
+			for (i = 0; i < userParam.nbclients + 2; i++) {
+				System.arraycopy(userParam.distBase[i], 0, userParam.dist[i], 0,
+						userParam.nbclients + 2);
+			}
+			EdgesBasedOnBranching(userParam, branching, true);
 
-			// check first that we need to solve this node. Not the case if we have
-			// already found a solution within the gap precision
-			if ((upperbound - lowerbound) / upperbound < userParam.gap)
-				return true;
-
-			// init
-			if (branching == null) { // root node - first call
-				// first call - root node
-				treeBB newNode = new treeBB();
-				newNode.father = null;
-				newNode.toplevel = true;
-				newNode.branchFrom = -1;
-				newNode.branchTo = -1;
-				newNode.branchValue = -1;
-				newNode.son0 = null;
-				branching = newNode;
+			// the initial lp for the CG contains all the routes of the father
+			// solution less the routes incompatible with the branching
+			// (and the columns found by the local search since the last node)
+			int[] candidates = node.columns;
+			if (!injected.isEmpty()) {
+				boolean[] in = new boolean[pool.size()];
+				for (int id : candidates)
+					in[id] = true;
+				int nb = candidates.length;
+				candidates = Arrays.copyOf(candidates, nb + injected.size());
+				for (Integer id : injected)
+					if (!in[id]) {
+						in[id] = true;
+						candidates[nb++] = id;
+					}
+				candidates = Arrays.copyOf(candidates, nb);
+				injected.clear();
+			}
+			int[] active;
+			if (branching.father == null) {
+				active = candidates;
+			} else {
+				active = new int[candidates.length];
+				int nbActive = 0;
+				for (int id : candidates) {
+					int[] path = pool.get(id).path;
+					boolean accept = true;
+					if (path.length > 3) { // we must keep trivial routes
+						// Depot-City-Depot in the set to ensure
+						// feasibility of the CG
+						prevcity = 0;
+						for (i = 1; accept && (i < path.length); i++) {
+							city = path[i];
+							if (userParam.dist[prevcity][city] >= userParam.verybig - 1E-6) accept = false;
+							prevcity = city;
+						}
+					}
+					if (accept) active[nbActive++] = id;
+				}
+				active = Arrays.copyOf(active, nbActive);
 			}
 
 			// display some local info
@@ -107,38 +403,63 @@ public class branchandbound {
 					+ runtime.freeMemory() / MB);
 
 			// Compute a solution for this node using Column generation
-			columngen CG = new columngen();
+			// (unless a node with the same forbidden arcs was already solved: same LP)
+			if (cache == null)
+				cache = new nodeCache(userParam.nodeCacheSize);
+			nodeCache.key key = cache.key(userParam);
+			nodeCache.entry result = cache.get(key);
+			columngen CG = null;
+			if (result != null) {
+				CGobj = result.bound;
+				System.out.println("\nCACHE | same forbidden arcs as a node already solved | Local CG cost: " + CGobj);
+			} else {
+				CG = new columngen();
+				CG.pricing = pricing;
+				CG.upperbound = upperbound;
+				CG.warm = node.warm;
+				if (userParam.timeLimit > 0)
+					CG.deadline = startTime + 1000L * userParam.timeLimit;
 
-			CGobj = CG.computeColGen(userParam, routes);
+				CGobj = CG.computeColGen(userParam, pool, active);
+				if (CG.timedOut) {
+					// time limit reached during the CG: this node is not solved, keep it
+					// open with the routes generated so far
+					node.columns = CG.columns;
+					open.add(node);
+					return true;
+				}
+				result = new nodeCache.entry(CGobj, CG.columns, CG.x, CG.vbasis, CG.cbasis);
+				cache.put(key, result);
+				if ((branching.father == null) && (CG.duals != null)) {
+					rootDuals = CG.duals;
+					rootBound = CG.dualBound;
+				}
+			}
+			node.warm = null;
+			int[] columns = result.columns;
+			double[] x = result.x;
+			node.columns = columns;
+			node.x = x;
 			// feasible ? Does a solution exist?
 			if ((CGobj > 2 * userParam.maxlength) || (CGobj < -1e-6)) {
 				// can only be true when the routes in the solution include forbidden edges (can happen when the BB set branching values)
 				System.out.println("RELAX INFEASIBLE | Lower bound: " + lowerbound
 						+ " | Upper bound: " + upperbound + " | Gap: "
 						+ ((upperbound - lowerbound) / upperbound) + " | BB Depth: "
-						+ depth + " | " + routes.size() + " routes");
+						+ depth + " | " + columns.length + " routes");
 				return true; // stop this branch
 			}
 			branching.lowestValue = CGobj;
 
-			// update the global lowerBound when required
-			if ((branching.father != null) && (branching.father.son0 != null)
-					&& branching.father.toplevel) {
-				// all nodes above and on the left have been processed=> we can compute
-				// a new lowerBound
-				lowerbound = Math.min(branching.lowestValue, branching.father.son0.lowestValue);
-				branching.toplevel = true;
-			} else if (branching.father == null) {
-				// root node
-				lowerbound = CGobj;
-			}
+			// update the global lowerBound: this node and all the nodes still to solve
+			lowerbound = Math.min(upperbound, Math.min(branching.lowestValue, openBound()));
 
 			if (branching.lowestValue > upperbound) {
 				CG = null;
 				System.out.println("CUT | Lower bound: " + lowerbound
 						+ " | Upper bound: " + upperbound + " | Gap: "
 						+ ((upperbound - lowerbound) / upperbound) + " | BB Depth: "
-						+ depth + " | Local CG cost: " + CGobj + " | " + routes.size()
+						+ depth + " | Local CG cost: " + CGobj + " | " + columns.length
 						+ " routes");
 				return true; // cut this useless branch
 			} else {
@@ -155,15 +476,15 @@ public class branchandbound {
 				for (i = 0; i < userParam.nbclients + 2; i++) {
 					java.util.Arrays.fill(userParam.edges[i], 0.0);
 				}
-				for (route r : routes) {
-					if (r.getQ() > 1e-6) {
+				for (int k = 0; k < columns.length; k++) {
+					if (x[k] > 1e-6) {
 						// we consider only the routes in the current local solution
-						ArrayList<Integer> path = r.getpath(); // get back the sequence of
+						int[] path = pool.get(columns[k]).path; // get back the sequence of
 						// cities (path for this route)
 						prevcity = 0;
-						for (i = 1; i < path.size(); i++) {
-							city = path.get(i);
-							userParam.edges[prevcity][city] += r.getQ(); // convert into edges
+						for (i = 1; i < path.length; i++) {
+							city = path[i];
+							userParam.edges[prevcity][city] += x[k]; // convert into edges
 							prevcity = city;
 						}
 					}
@@ -180,7 +501,7 @@ public class branchandbound {
 							// what if we impose this route in the solution? Q=1
 							// keep the ref of the edge which should lead to the largest change
 							change = Math.min(coef, Math.abs(1.0 - coef));
-							change *= routes.get(i).getcost();
+							change *= pool.get(columns[i]).getcost();
 							if (change > bestObj) {
 								bestEdge1 = i;
 								bestEdge2 = j;
@@ -195,26 +516,26 @@ public class branchandbound {
 					if (branching.lowestValue < upperbound) { // new incumbant feasible solution!
 						upperbound = branching.lowestValue;
 						bestRoutes.clear();
-						for (route r : routes) {
-							if (r.getQ() > 1e-6) {
-								route optim = new route();
-								optim.setcost(r.getcost());
-								optim.path = r.getpath();
-								optim.setQ(r.getQ());
-								bestRoutes.add(optim);
+						for (int k = 0; k < columns.length; k++) {
+							if (x[k] > 1e-6) {
+								// routes are immutable: no need of a copy
+								bestRoutes.add(pool.get(columns[k]));
 							}
 						}
 						System.out.println("OPT | Lower bound: " + lowerbound
 								+ " | Upper bound: " + upperbound + " | Gap: "
 								+ ((upperbound - lowerbound) / upperbound) + " | BB Depth: "
-								+ depth + " | Local CG cost: " + CGobj + " | " + routes.size()
+								+ depth + " | Local CG cost: " + CGobj + " | " + columns.length
 								+ " routes");
 						System.out.flush();
+						fire(progressEvent.INCUMBENT, depth, bestRoutes);
+						if (ls != null)
+							ls.submit(paths(bestRoutes));
 					} else {
                         System.out.println("FEAS | Lower bound: " + lowerbound
                                 + " | Upper bound: " + upperbound + " | Gap: "
                                 + ((upperbound - lowerbound) / upperbound) + " | BB Depth: "
-                                + depth + " | Local CG cost: " + CGobj + " | " + routes.size()
+                                + depth + " | Local CG cost: " + CGobj + " | " + columns.length
                                 + " routes");
                     }
 					return true;
@@ -222,9 +543,12 @@ public class branchandbound {
 					System.out.println("INTEG INFEAS | Lower bound: " + lowerbound
 							+ " | Upper bound: " + upperbound + " | Gap: "
 							+ ((upperbound - lowerbound) / upperbound) + " | BB Depth: "
-							+ depth + " | Local CG cost: " + CGobj + " | " + routes.size()
+							+ depth + " | Local CG cost: " + CGobj + " | " + columns.length
 							+ " routes");
 					System.out.flush();
+					// an integer solution from this LP solution, for the local search
+					if (ls != null)
+						ls.submit(improver.roundLP(userParam, pool, columns, x));
 					// ///////////////////////////////////////////////////////////
 					// branching (diving strategy)
 
@@ -237,39 +561,6 @@ public class branchandbound {
 					newNode1.branchValue = bestVal; // first version was not with bestVal
 					// but with 0
 					newNode1.lowestValue = -1E10;
-					newNode1.son0 = null;
-
-					// branching on edges[bestEdge1][bestEdge2]=0
-					EdgesBasedOnBranching(userParam, newNode1, false);
-
-					// the initial lp for the CG contains all the routes of the previous
-					// solution less(去掉分支的边) the routes containing this arc
-					ArrayList<route> nodeRoutes = new ArrayList<route>();
-					for (route r : routes) {
-						ArrayList<Integer> path = r.getpath();
-						boolean accept = true;
-						if (path.size() > 3) { // we must keep trivial routes
-							// Depot-City-Depot in the set to ensure
-							// feasibility of the CG
-							prevcity = 0;
-							for (j = 1; accept && (j < path.size()); j++) {
-								city = path.get(j);
-								if ((prevcity == bestEdge1) && (city == bestEdge2))
-									accept = false;
-								prevcity = city;
-							}
-						}
-						if (accept) nodeRoutes.add(r);
-					}
-
-					boolean ok;
-					ok = BBNode(userParam, nodeRoutes, newNode1, bestRoutes, depth + 1);
-					nodeRoutes = null; // free memory
-					if (!ok) {
-						return false;
-					}
-
-					branching.son0 = newNode1;
 
 					// second branch -> set edges[bestEdge1][bestEdge2]=1
 					// record the branching information in a tree list
@@ -279,41 +570,17 @@ public class branchandbound {
 					newNode2.branchTo = bestEdge2;
 					newNode2.branchValue = 1 - bestVal; // first version: always 1
 					newNode2.lowestValue = -1E10;
-					newNode2.son0 = null;
 
-					// branching on edges[bestEdge1][bestEdge2]=1
-					// second branching=>need to reinitialize the dist matrix
-					for (i = 0; i < userParam.nbclients + 2; i++) {
-                        System.arraycopy(userParam.distBase[i], 0, userParam.dist[i], 0,
-                              userParam.nbclients + 2);
-                    }
-					//reinitialize了因此需要recur递归一下
-					EdgesBasedOnBranching(userParam, newNode2, true);
-					// the initial lp for the CG contains all the routes of the previous
-					// solution less the routes incompatible with this arc
-					ArrayList<route> nodeRoutes2 = new ArrayList<route>();
-					for (route r : routes) {
-						ArrayList<Integer> path = r.getpath();
-						boolean accept = true;
-						if (path.size() > 3) { // we must keep trivial routes
-							// Depot-City-Depot in the set to ensure
-							// feasibility of the CG
-							prevcity = 0;
-							for (i = 1; accept && (i < path.size()); i++) {
-								city = path.get(i);
-								if (userParam.dist[prevcity][city] >= userParam.verybig - 1E-6) accept = false;
-								prevcity = city;
-							}
-						}
-						if (accept) nodeRoutes2.add(r);
-					}
-					ok = BBNode(userParam, nodeRoutes2, newNode2, bestRoutes, depth + 1);
-					nodeRoutes2 = null;
-
-					// update lowest feasible value of this node
-					branching.lowestValue = Math.min(newNode1.lowestValue, newNode2.lowestValue);
-
-					return ok;
+					// the first branch is solved first (last pushed) and its whole subtree
+					// before the second branch. The sons start from the routes of this node
+					// less the routes incompatible with their branching
+					openNode son2 = new openNode(newNode2, columns, depth + 1);
+					openNode son1 = new openNode(newNode1, columns, depth + 1);
+					son2.warm = result;
+					son1.warm = result;
+					open.add(son2);
+					open.add(son1);
+					return true;
 				}
 			}
 
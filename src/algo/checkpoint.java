@@ -0,0 +1,176 @@
+package algo;
+
+// save and restore the state of the Branch and Price to continue a long run
+// after a restart of the JVM
+//
+// binary format (gzip compressed DataOutputStream):
+//   header: MAGIC, VERSION, nbclients, capacity
+//   bounds: upperbound, lowerbound, number of nodes solved
+//   column pool: number of routes, then for each route its path (the cost is recomputed),
+//                in the order of the pool (same ids after the restart)
+//   branching tree: number of treeBB nodes, then for each node the index of its father
+//                   (-1 for the root), branchFrom, branchTo, branchValue, lowestValue
+//   open nodes: number of nodes, then for each node its treeBB index, its depth
+//               and the ids (in the column pool) of its initial routes
+//   incumbent: number of routes, then their ids in the column pool
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+public class checkpoint {
+	static final int MAGIC = 0x42505652; // "BPVR"
+	static final int VERSION = 3;
+
+	public static void save(branchandbound bb, paramsVRP userParam, String path,
+	                        ArrayList<route> bestRoutes) throws IOException {
+		// tree nodes are shared between the open nodes => write them once
+		IdentityHashMap<branchandbound.treeBB, Integer> treeIdx = new IdentityHashMap<branchandbound.treeBB, Integer>();
+		ArrayList<branchandbound.treeBB> tree = new ArrayList<branchandbound.treeBB>();
+		for (branchandbound.openNode node : bb.open)
+			addTreeNode(node.branching, treeIdx, tree);
+		columnPool pool = bb.pool;
+		int[] best = new int[bestRoutes.size()];
+		for (int i = 0; i < best.length; i++)
+			best[i] = pool.add(bestRoutes.get(i)); // already there, except for an incumbent given by the user
+
+		// write in a temporary file first: a crash while writing keeps the previous checkpoint
+		File tmp = new File(path + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new GZIPOutputStream(new FileOutputStream(tmp))));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(userParam.nbclients);
+			out.writeInt(userParam.capacity);
+
+			out.writeDouble(bb.upperbound);
+			out.writeDouble(bb.lowerbound);
+			out.writeInt(bb.nbNodes);
+
+			out.writeInt(pool.size());
+			for (int id = 0; id < pool.size(); id++)
+				writeRoute(out, pool.get(id));
+
+			out.writeInt(tree.size());
+			for (branchandbound.treeBB t : tree) {
+				out.writeInt((t.father == null) ? -1 : treeIdx.get(t.father));
+				out.writeInt(t.branchFrom);
+				out.writeInt(t.branchTo);
+				out.writeInt(t.branchValue);
+				out.writeDouble(t.lowestValue);
+			}
+
+			out.writeInt(bb.open.size());
+			for (branchandbound.openNode node : bb.open) {
+				out.writeInt(treeIdx.get(node.branching));
+				out.writeInt(node.depth);
+				out.writeInt(node.columns.length);
+				for (int id : node.columns)
+					out.writeInt(id);
+			}
+
+			out.writeInt(best.length);
+			for (int id : best)
+				out.writeInt(id);
+		} finally {
+			out.close();
+		}
+		Files.move(tmp.toPath(), new File(path).toPath(),
+				StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		System.out.println("CHECKPOINT | " + bb.open.size() + " open nodes | "
+				+ pool.size() + " routes | " + path);
+	}
+
+	// a route: the number of cities and the cities
+	// (also used by the coordinator and the workers of the distributed B&B)
+	static void writeRoute(DataOutputStream out, route r) throws IOException {
+		out.writeInt(r.path.length);
+		for (int city : r.path)
+			out.writeInt(city);
+	}
+
+	static route readRoute(DataInputStream in, paramsVRP userParam) throws IOException {
+		int[] path = new int[in.readInt()];
+		for (int i = 0; i < path.length; i++)
+			path[i] = in.readInt();
+		return new route(path, userParam);
+	}
+
+	// fathers are always written before their sons
+	static void addTreeNode(branchandbound.treeBB t,
+	                        IdentityHashMap<branchandbound.treeBB, Integer> treeIdx,
+	                        ArrayList<branchandbound.treeBB> tree) {
+		if (treeIdx.containsKey(t))
+			return;
+		if (t.father != null)
+			addTreeNode(t.father, treeIdx, tree);
+		treeIdx.put(t, tree.size());
+		tree.add(t);
+	}
+
+	public static void load(branchandbound bb, paramsVRP userParam, String path,
+	                        ArrayList<route> bestRoutes) throws IOException {
+		int i, j, n;
+		DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new GZIPInputStream(new FileInputStream(path))));
+		try {
+			if ((in.readInt() != MAGIC) || (in.readInt() != VERSION))
+				throw new IOException("not a checkpoint file: " + path);
+			if ((in.readInt() != userParam.nbclients) || (in.readInt() != userParam.capacity))
+				throw new IOException("checkpoint " + path + " does not match the instance");
+
+			bb.upperbound = in.readDouble();
+			bb.lowerbound = in.readDouble();
+			bb.nbNodes = in.readInt();
+
+			n = in.readInt();
+			columnPool pool = new columnPool();
+			for (i = 0; i < n; i++)
+				pool.add(readRoute(in, userParam));
+			bb.pool = pool;
+
+			n = in.readInt();
+			ArrayList<branchandbound.treeBB> tree = new ArrayList<branchandbound.treeBB>(n);
+			for (i = 0; i < n; i++) {
+				branchandbound.treeBB t = bb.new treeBB();
+				int father = in.readInt();
+				t.father = (father < 0) ? null : tree.get(father);
+				t.branchFrom = in.readInt();
+				t.branchTo = in.readInt();
+				t.branchValue = in.readInt();
+				t.lowestValue = in.readDouble();
+				tree.add(t);
+			}
+
+			n = in.readInt();
+			bb.open.clear();
+			for (i = 0; i < n; i++) {
+				branchandbound.treeBB t = tree.get(in.readInt());
+				int depth = in.readInt();
+				int[] columns = new int[in.readInt()];
+				for (j = 0; j < columns.length; j++)
+					columns[j] = in.readInt();
+				bb.open.add(bb.new openNode(t, columns, depth));
+			}
+
+			n = in.readInt();
+			bestRoutes.clear();
+			for (i = 0; i < n; i++)
+				bestRoutes.add(pool.get(in.readInt()));
+		} finally {
+			in.close();
+		}
+	}
+}
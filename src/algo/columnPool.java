@@ -0,0 +1,56 @@
+package algo;
+
+// the columns (routes) of the Branch and Price, stored once for the whole search
+// a column is identified by its index in the pool (id); the B&B nodes only keep
+// the ids of their active columns (int[]) and their own LP values (see branchandbound.openNode)
+// a route already in the pool is not added again: add() returns its id
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+public class columnPool {
+	ArrayList<route> columns;
+	HashMap<route, Integer> ids;
+
+	public columnPool() {
+		columns = new ArrayList<route>();
+		ids = new HashMap<route, Integer>();
+	}
+
+	// id of the route, added at the end of the pool if it is a new one
+	public int add(route r) {
+		Integer id = ids.get(r);
+		if (id != null)
+			return id;
+		ids.put(r, columns.size());
+		columns.add(r);
+		return columns.size() - 1;
+	}
+
+	public int[] addAll(ArrayList<route> routes) {
+		int[] result = new int[routes.size()];
+		for (int i = 0; i < routes.size(); i++)
+			result[i] = add(routes.get(i));
+		return result;
+	}
+
+	public route get(int id) {
+		return columns.get(id);
+	}
+
+	public int size() {
+		return columns.size();
+	}
+
+	// remove the columns added after the first size ones
+	// (a worker of the distributed B&B keeps the same ids as the coordinator)
+	public void truncate(int size) {
+		for (int id = columns.size() - 1; id >= size; id--)
+			ids.remove(columns.remove(id));
+	}
+
+	// copy of the routes, in the order of their ids
+	public ArrayList<route> toList() {
+		return new ArrayList<route>(columns);
+	}
+}
@@ -10,11 +10,26 @@ package algo;
 import java.io.IOException;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 
 // 引入 Gurobi 包
 import com.gurobi.gurobi.*;
 
 public class columngen {
+	long deadline = 0; // stop the CG after this time (ms), 0 = no limit
+	boolean timedOut = false; // the CG was stopped by the deadline: the objective is not a lower bound
+	pricingControl pricing = null; // number of columns per SPPRC call (null: a new one for this CG)
+	double upperbound = 1E10; // cost of the incumbent: stop the CG if the node can't improve it
+	double lagrangianBound = -1E10; // best Lagrangian lower bound found for this node
+	int[] columns; // result: ids (in the column pool) of the columns of the final LP
+	double[] x;    // result: value of these columns in the final LP solution
+	int[] vbasis;  // result: basis status of these columns (null if not available)
+	int[] cbasis;  // result: basis status of the constraints (null if not available)
+	nodeCache.entry warm = null; // result of the father: its basis is used to start the first LP
+	double[] duals = null; // result: duals with the best Lagrangian bound (exact pricing), null if none
+	double dualBound = -1E10; // result: the Lagrangian bound of these duals
 
 	// 辅助类：用于存储 Gurobi 变量，模仿原代码中的 IloNumVarArray
 	static class GRBVarArray {
@@ -39,12 +54,19 @@ public class columngen {
 		}
 	}
 
-	public double computeColGen(paramsVRP userParam, ArrayList<route> routes)
+	public double computeColGen(paramsVRP userParam, columnPool pool, int[] active)
 			throws IOException {
+		// pool (input/output): all the columns, the new ones are added at the end
+		// active (input): ids of the columns of the first LP
 		int i, j, prevcity, city;
 		double cost, obj;
 		double[] pi;
 		boolean oncemore;
+		// ids of the columns of the LP, in the order of the variables y
+		int[] cols = Arrays.copyOf(active, Math.max(16, 2 * active.length));
+		int nbCols = active.length;
+		columns = active;
+		asyncPricer pricer = null; // pricing thread (userParam.asyncPricing)
 
 		try {
 
@@ -85,36 +107,32 @@ public class columngen {
 			// 3. 初始化变量 (Variables / Columns)
 			// ---------------------------------------------------------
 			// 将现有的 routes 添加到模型中
-			for (route r : routes) {
+			for (int id : active) {
+				route r = pool.get(id);
 				int v;
-				cost = 0.0;
-				prevcity = 0;
-				for (i = 1; i < r.getpath().size(); i++) {
-					city = r.getpath().get(i);
-					cost += userParam.dist[prevcity][city];
-					prevcity = city;
-				}
-
-				r.setcost(cost);
+				int[] path = r.getpath();
+				// cost with the distances of this node (very large on a forbidden edge)
+				// the route keeps its real cost: it is shared with the other nodes
+				cost = r.nodeCost(userParam);
 
 				// --- 创建 Gurobi Column 对象 ---
 				// Gurobi 的 Column 用于指定新变量在哪些约束中系数不为 0
 				GRBColumn column = new GRBColumn();
 
 				// 目标函数系数在 addVar 中直接指定，这里只处理约束系数
-				for (i = 1; i < r.getpath().size() - 1; i++) {
-					v = r.getpath().get(i) - 1;
+				for (i = 1; i < path.length - 1; i++) {
+					v = path[i] - 1;
 					// 向 Column 添加项：系数 1.0，对应约束 lpmatrix[v]
 					column.addTerm(1.0, lpmatrix[v]);
 				}
 
 				// 添加变量: addVar(lb, ub, obj, vtype, column, name)
 				// lb=0.0, ub=INFINITY, obj=cost, type=CONTINUOUS
-				y.add(model.addVar(0.0, GRB.INFINITY, r.getcost(), GRB.CONTINUOUS, column, "y_init_" + y.getSize()));
+				y.add(model.addVar(0.0, GRB.INFINITY, cost, GRB.CONTINUOUS, column, "y_init_" + y.getSize()));
 			}
 
 			// 如果初始路径不足以覆盖所有客户，添加简单的往返路径 (Depot -> Client -> Depot)
-			if (routes.size() < userParam.nbclients) {
+			if (nbCols < userParam.nbclients) {
 				for (i = 0; i < userParam.nbclients; i++) {
 					cost = userParam.dist[0][i + 1]
 							+ userParam.dist[i + 1][userParam.nbclients + 1];
@@ -124,23 +142,46 @@ public class columngen {
 
 					y.add(model.addVar(0.0, GRB.INFINITY, cost, GRB.CONTINUOUS, column, "y_dummy_" + i));
 
-					route newroute = new route();
-					newroute.addcity(0);
-					newroute.addcity(i + 1);
-					newroute.addcity(userParam.nbclients + 1);
-					newroute.setcost(cost);
-					routes.add(newroute);
+					if (nbCols == cols.length)
+						cols = Arrays.copyOf(cols, 2 * nbCols);
+					cols[nbCols++] = pool.add(route.single(i + 1, userParam));
 				}
 			}
 
+			// warm start: the same constraints as the father, and the columns of the father
+			// kept by this node with their status in the father's basis (the others are nonbasic)
+			// Gurobi completes the basis if some basic columns of the father are missing
+			if ((warm != null) && (warm.vbasis != null) && (warm.cbasis != null)) {
+				HashMap<Integer, Integer> status = new HashMap<Integer, Integer>();
+				for (i = 0; i < warm.columns.length; i++)
+					status.put(warm.columns[i], warm.vbasis[i]);
+				int[] vb = new int[nbCols];
+				for (i = 0; i < nbCols; i++) {
+					Integer st = status.get(cols[i]);
+					vb[i] = (st == null) ? GRB.NONBASIC_LOWER : st;
+				}
+				model.update();
+				model.set(GRB.IntAttr.VBasis, Arrays.copyOf(y._array, y.getSize()), vb);
+				model.set(GRB.IntAttr.CBasis, lpmatrix, warm.cbasis);
+			}
+
 			// ---------------------------------------------------------
 			// 4. 列生成循环 (Column Generation Loop)
 			// ---------------------------------------------------------
 			DecimalFormat df = new DecimalFormat("#0000.00");
 			oncemore = true;
 			double[] prevobj = new double[100];
-			int nbroute;
 			int previ = -1;
+			if (pricing == null)
+				pricing = new pricingControl();
+			pricing.init(userParam);
+			int firstAdded = y.getSize(); // columns added at the previous iteration: firstAdded..y.getSize()-1
+			long t0;
+			double lpTime, pricingTime;
+			if (userParam.asyncPricing)
+				pricer = new asyncPricer(userParam, pricing.nbRoute, pricing.maxSol(), deadline);
+			int lastDone = 0; // last run of the pricer used for the Lagrangian bound
+			SPPRC tree = null; // labels of the last SPPRC search, re-costed with the new duals (userParam.reuseLabels)
 
 			// Gurobi 在循环中添加变量推荐 update，但在 optimize 前会自动处理，此处显式保留结构
 
@@ -148,7 +189,9 @@ public class columngen {
 				oncemore = false;
 
 				// --- 求解 RMP ---
+				t0 = System.nanoTime();
 				model.optimize();
+				lpTime = (System.nanoTime() - t0) / 1e6;
 
 				// 检查求解状态
 				int status = model.get(GRB.IntAttr.Status);
@@ -161,6 +204,11 @@ public class columngen {
 
 				prevobj[(++previ) % 100] = model.get(GRB.DoubleAttr.ObjVal);
 
+				if ((deadline > 0) && (System.currentTimeMillis() > deadline)) {
+					timedOut = true;
+					break;
+				}
+
 				// ---------------------------------------------------------
 				// 获取对偶值 (Dual Values / Pi)
 				// ---------------------------------------------------------
@@ -169,57 +217,165 @@ public class columngen {
 					pi[i] = lpmatrix[i].get(GRB.DoubleAttr.Pi);
 				}
 
-				// --- 更新子问题 (SPPRC) 的边权重 ---
-				// Reduced Cost C_ij = Dist_ij - Dual_i
-				// 注意：Dual_i 对应客户 i 的约束。
-				// 逻辑：cost[i][j] = dist[i][j] - pi[i-1]
-				for (i = 1; i < userParam.nbclients + 1; i++)
-					for (j = 0; j < userParam.nbclients + 2; j++)
-						userParam.cost[i][j] = userParam.dist[i][j] - pi[i - 1];
-
-				// --- 求解子问题 (SPPRC) ---
-				SPPRC sp = new SPPRC();
 				ArrayList<route> routesSPPRC = new ArrayList<route>();
+				boolean exact;
+				boolean current = true; // the pricing used the duals pi
+				double minCost, dualSum;
+
+				if (pricer != null) {
+					// pipelined mode: the pricer thread gets the new duals (and restarts if they
+					// changed enough); we take the routes it has already found which are still
+					// negative with these duals, waiting only if there is none yet
+					int v = pricer.publish(pi);
+					current = false;
+					HashSet<route> batch = new HashSet<route>();
+					while (routesSPPRC.size() < pricing.nbRoute) {
+						route r = pricer.poll(routesSPPRC.isEmpty() ? 1 : 0);
+						if (r != null) {
+							double rc = r.getcost();
+							for (int c : r.getpath())
+								if ((c > 0) && (c <= userParam.nbclients))
+									rc -= pi[c - 1];
+							if ((rc < -1e-4) && batch.add(r))
+								routesSPPRC.add(r);
+							continue;
+						}
+						if (routesSPPRC.size() > 0)
+							break; // nothing more for now: solve the LP with this batch
+						synchronized (pricer) {
+							if (pricer.error != null)
+								throw pricer.error;
+							// (the pricer streams its routes before it reports the end of its run)
+							if ((pricer.doneVersion == v) && pricer.routes.isEmpty()) {
+								current = true;
+								break;
+							}
+						}
+						if ((deadline > 0) && (System.currentTimeMillis() > deadline))
+							break;
+					}
+					synchronized (pricer) {
+						// last complete run, on these duals or on older ones
+						exact = (pricer.doneVersion > lastDone) && pricer.doneExact;
+						lastDone = pricer.doneVersion;
+						minCost = pricer.doneMinCost;
+						dualSum = pricer.doneDualSum;
+					}
+					if (!current && routesSPPRC.isEmpty()) {
+						timedOut = true;
+						break;
+					}
+				} else {
+					// --- 更新子问题 (SPPRC) 的边权重 ---
+					// Reduced Cost C_ij = Dist_ij - Dual_i
+					// 注意：Dual_i 对应客户 i 的约束。
+					// 逻辑：cost[i][j] = dist[i][j] - pi[i-1]
+					// (one row at a time, SIMD if available: see vectorOps)
+					for (i = 1; i < userParam.nbclients + 1; i++)
+						vectorOps.subtract(userParam.dist[i], 0, userParam.cost[i], 0, userParam.nbclients + 2, pi[i - 1]);
+
+					// --- 求解子问题 (SPPRC) ---
+					// number of columns: adapted by the pricingControl (see there)
+					t0 = System.nanoTime();
+					SPPRC sp = tree;
+					boolean resumed = false;
+					if (sp != null) {
+						// the labels of the last search, re-costed with the new duals
+						sp.deadline = deadline;
+						sp.maxSol = pricing.maxSol();
+						sp.maxOverlap = pricing.maxOverlap;
+						resumed = sp.resume(routesSPPRC, pricing.nbRoute);
+					}
+					if (!resumed) {
+						sp = new SPPRC();
+						sp.deadline = deadline;
+						sp.maxSol = pricing.maxSol();
+						sp.maxOverlap = pricing.maxOverlap;
+						sp.keepAll = userParam.reuseLabels;
+						sp.shortestPath(userParam, routesSPPRC, pricing.nbRoute);
+						tree = userParam.reuseLabels ? sp : null;
+					}
+					pricingTime = (System.nanoTime() - t0) / 1e6;
+
+					// how many of the columns added at the previous iteration are in the basis?
+					int nbBasic = 0;
+					for (i = firstAdded; i < y.getSize(); i++)
+						if (y.getElement(i).get(GRB.IntAttr.VBasis) == GRB.BASIC)
+							nbBasic++;
+					// (not after a resumed search: its time is not the time of a search, the
+					// pricingControl would see a pricing much faster than it is)
+					if (!resumed)
+						pricing.update(lpTime, pricingTime, y.getSize() - firstAdded, nbBasic);
+					firstAdded = y.getSize();
+					exact = sp.exact;
+					minCost = sp.minCost;
+					dualSum = prevobj[previ % 100];
+					sp = null;
+				}
 
-				nbroute = userParam.nbclients;
-				// 原代码中有关于收敛速度的注释逻辑，此处保留结构
+				// Lagrangian lower bound: no solution uses more than nbclients routes,
+				// and no route has a reduced cost lower than minCost => LP* >= sum(pi) + nbclients * minCost
+				// for the duals pi of the pricing (sum(pi) = z for the duals of the LP, but any duals >= 0
+				// give a bound: the pricer thread can use older ones)
+				// (only if the SPPRC found the true minimum, not after an early stop)
+				if (exact) {
+					obj = prevobj[previ % 100];
+					lagrangianBound = Math.max(lagrangianBound, dualSum + userParam.nbclients * minCost);
+					if (current && (dualSum + userParam.nbclients * minCost > dualBound)) {
+						// (kept for the enumeration of the routes, see enumSPPRC)
+						duals = pi;
+						dualBound = dualSum + userParam.nbclients * minCost;
+					}
+					if (lagrangianBound > upperbound + 1e-6) {
+						// the node can't improve the incumbent: no need to finish the CG
+						// (the current objective is even larger => the node will be cut)
+						System.out.print("\nCG Iter " + previ + " Lagrangian bound "
+								+ df.format(lagrangianBound) + " > upper bound: stop");
+						break;
+					}
+					if (roundUp(lagrangianBound) >= roundUp(obj) - 1e-9) {
+						// the costs are on a 0.1 grid: the bound of the node can't increase anymore
+						// (any integer solution costs at least roundUp(lagrangianBound) >= obj)
+						System.out.print("\nCG Iter " + previ + " Lagrangian bound "
+								+ df.format(lagrangianBound) + " ~ LP: stop");
+						break;
+					}
+				}
 
-				sp.shortestPath(userParam, routesSPPRC, nbroute);
-				sp = null;
+				// pricing stopped by the deadline: no column found doesn't mean that the CG converged
+				// (the objective is not a lower bound, the node must stay open)
+				if (!exact && (deadline > 0) && (System.currentTimeMillis() > deadline)) {
+					timedOut = true;
+					break;
+				}
 
 				// --- 检查是否找到负 Reduced Cost 的列 ---
 				if (routesSPPRC.size() > 0) {
 					for (route r : routesSPPRC) {
-						ArrayList<Integer> rout = r.getpath();
-						prevcity = rout.get(1);
+						int[] rout = r.getpath();
 
 						// 计算真实成本 (Real Cost) 用于 RMP 的目标函数系数
-						cost = userParam.dist[0][prevcity];
+						// (the SPPRC only uses allowed edges: real cost = cost of this node)
+						cost = r.getcost();
 
 						// 创建 Gurobi Column
 						GRBColumn column = new GRBColumn();
-						column.addTerm(1.0, lpmatrix[rout.get(1) - 1]);
-
-						for (i = 2; i < rout.size() - 1; i++) {
-							city = rout.get(i);
-							cost += userParam.dist[prevcity][city];
-							prevcity = city;
-
+						for (i = 1; i < rout.length - 1; i++) {
 							// 添加约束系数
-							column.addTerm(1.0, lpmatrix[rout.get(i) - 1]);
+							column.addTerm(1.0, lpmatrix[rout[i] - 1]);
 						}
-						cost += userParam.dist[prevcity][userParam.nbclients + 1];
 
 						// 向模型添加新变量 (Column)
-						y.add(model.addVar(0.0, GRB.INFINITY, cost, GRB.CONTINUOUS, column, "P" + routes.size()));
+						y.add(model.addVar(0.0, GRB.INFINITY, cost, GRB.CONTINUOUS, column, "P" + nbCols));
 
-						r.setcost(cost);
-						routes.add(r);
+						if (nbCols == cols.length)
+							cols = Arrays.copyOf(cols, 2 * nbCols);
+						cols[nbCols++] = pool.add(r);
 
 						oncemore = true;
 					}
 					System.out.print("\nCG Iter " + previ + " Current cost: "
-							+ df.format(prevobj[previ % 100]) + " " + routes.size()
+							+ df.format(prevobj[previ % 100]) + " " + nbCols
 							+ " routes");
 					System.out.flush();
 				}
@@ -231,8 +387,19 @@ public class columngen {
 			System.out.println();
 
 			// 更新路由的流量值 (q)
+			// (kept with the ids of the columns: the routes are shared by all the nodes)
+			columns = Arrays.copyOf(cols, nbCols);
+			x = new double[nbCols];
 			for (i = 0; i < y.getSize(); i++) {
-				routes.get(i).setQ(y.getElement(i).get(GRB.DoubleAttr.X));
+				x[i] = y.getElement(i).get(GRB.DoubleAttr.X);
+			}
+			// final basis: kept with the result of the node (cache, warm start of the sons)
+			try {
+				vbasis = model.get(GRB.IntAttr.VBasis, Arrays.copyOf(y._array, y.getSize()));
+				cbasis = model.get(GRB.IntAttr.CBasis, lpmatrix);
+			} catch (GRBException e) {
+				vbasis = null; // no basis (not a simplex solution)
+				cbasis = null;
 			}
 
 			obj = model.get(GRB.DoubleAttr.ObjVal);
@@ -245,7 +412,15 @@ public class columngen {
 
 		} catch (GRBException e) {
 			System.err.println("Gurobi exception caught: Code " + e.getErrorCode() + " - " + e.getMessage());
+		} finally {
+			if (pricer != null)
+				pricer.shutdown();
 		}
 		return 1E10;
 	}
-}
\ No newline at end of file
+
+	// round up to the precision of the costs (distances truncated to 0.1 in paramsVRP)
+	static double roundUp(double v) {
+		return Math.ceil(v * 10.0 - 1e-6) / 10.0;
+	}
+}
\ No newline at end of file
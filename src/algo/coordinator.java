@@ -0,0 +1,319 @@
+package algo;
+
+// distributed Branch and Price: the coordinator
+//
+// the coordinator owns the open nodes, the incumbent, the global bounds and the column pool.
+// worker processes (see worker) connect to it with a socket, get a node, solve it with their
+// own columngen/SPPRC and send back the bound, the new columns and the sons of the node.
+//
+// protocol (DataOutputStream on the socket):
+//   worker -> coordinator, once: nbclients (to check that both use the same instance)
+//   coordinator -> worker: NODE, upper bound,
+//                          the routes of the pool not yet sent to this worker,
+//                          the branching decisions from the root (from, to, value),
+//                          depth, ids of the initial routes of the node
+//                          (the id of a route is its index in the pool, the same on both sides)
+//   worker -> coordinator: bound of the node, new columns (with a flag: used in the LP solution),
+//                          ids of the pool routes used in the LP solution,
+//                          sons (from, to, value), better incumbent (if any)
+//                          (number of sons REQUEUE: the node was not solved, its CG was stopped by the
+//                          time limit of the worker => the node is sent again, with the new columns)
+//   coordinator -> worker: STOP when the search is over
+//
+// the columns used in the LP solutions of the workers are shared: they are added
+// to the initial routes of every node sent afterwards (at most MAXSHARED of them)
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+
+public class coordinator {
+	static final int STOP = 0;
+	static final int NODE = 1;
+	static final int MAXSHARED = 1000;
+	static final int REQUEUE = -1;
+
+	paramsVRP userParam;
+	columnPool pool;              // all the columns (each one once): the index of a route is its id
+	ArrayList<task> open;         // nodes still to solve (the last one first: diving)
+	ArrayList<task> running;      // nodes being solved by a worker
+	LinkedHashSet<Integer> shared; // ids of the columns recently used in an LP solution
+	ArrayList<route> bestRoutes;
+	double upperbound;
+	double lowerbound;
+	int nbNodes;
+	boolean finished;
+
+	class task {
+		// a node of the Branch and Bound
+		int[] decisions; // branching decisions from the root: from, to, value for each
+		double bound;    // lower bound of the father
+		int[] routes;    // ids of the initial routes of the CG
+		int depth;
+	}
+
+	public coordinator(paramsVRP userParam) {
+		int i;
+		this.userParam = userParam;
+		pool = new columnPool();
+		open = new ArrayList<task>();
+		running = new ArrayList<task>();
+		shared = new LinkedHashSet<Integer>();
+		bestRoutes = new ArrayList<route>();
+		upperbound = 1E10;
+		lowerbound = -1E10;
+		nbNodes = 0;
+		finished = false;
+
+		// root node: start from the routes Depot-Client-Depot
+		task root = new task();
+		root.decisions = new int[0];
+		root.bound = -1E10;
+		root.depth = 0;
+		root.routes = new int[userParam.nbclients];
+		for (i = 1; i <= userParam.nbclients; i++) {
+			root.routes[i - 1] = pool.add(route.single(i, userParam));
+		}
+		open.add(root);
+	}
+
+	public ArrayList<route> run(int port) throws IOException {
+		// accept the workers until the search is over
+		ServerSocket server = new ServerSocket(port);
+		server.setSoTimeout(1000);
+		System.out.println("COORDINATOR | listening on port " + port);
+		ArrayList<Thread> threads = new ArrayList<Thread>();
+		try {
+			while (!isFinished()) {
+				try {
+					final Socket socket = server.accept();
+					Thread t = new Thread(new Runnable() {
+						public void run() {
+							serve(socket);
+						}
+					});
+					t.start();
+					threads.add(t);
+				} catch (SocketTimeoutException e) {
+					// check again if the search is over
+				}
+			}
+		} finally {
+			server.close();
+		}
+		for (Thread t : threads) {
+			try {
+				t.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		System.out.println("COORDINATOR | Lower bound: " + lowerbound + " | Upper bound: "
+				+ upperbound + " | " + nbNodes + " nodes");
+		return bestRoutes;
+	}
+
+	synchronized boolean isFinished() {
+		return finished;
+	}
+
+	void serve(Socket socket) {
+		int i, n;
+		task t = null;
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			if (in.readInt() != userParam.nbclients) {
+				System.err.println("COORDINATOR | worker with another instance rejected");
+				socket.close();
+				return;
+			}
+			int known = 0; // routes of the pool already sent to this worker
+
+			while (true) {
+				ArrayList<route> newRoutes;
+				int[] ids;
+				double ub;
+				synchronized (this) {
+					t = next();
+					if (t == null)
+						break;
+					newRoutes = new ArrayList<route>();
+					for (; known < pool.size(); known++)
+						newRoutes.add(pool.get(known));
+					ub = upperbound;
+					LinkedHashSet<Integer> all = new LinkedHashSet<Integer>();
+					for (int id : t.routes)
+						all.add(id);
+					all.addAll(shared);
+					ids = new int[all.size()];
+					i = 0;
+					for (Integer id : all)
+						ids[i++] = id;
+				}
+
+				out.writeInt(NODE);
+				out.writeDouble(ub);
+				out.writeInt(newRoutes.size());
+				for (route r : newRoutes)
+					checkpoint.writeRoute(out, r);
+				out.writeInt(t.decisions.length / 3);
+				for (int v : t.decisions)
+					out.writeInt(v);
+				out.writeInt(t.depth);
+				out.writeInt(ids.length);
+				for (int id : ids)
+					out.writeInt(id);
+				out.flush();
+
+				// result
+				double bound = in.readDouble();
+				n = in.readInt();
+				ArrayList<route> columns = new ArrayList<route>(n);
+				boolean[] good = new boolean[n];
+				for (i = 0; i < n; i++) {
+					columns.add(checkpoint.readRoute(in, userParam));
+					good[i] = in.readBoolean();
+				}
+				n = in.readInt();
+				int[] goodIds = new int[n];
+				for (i = 0; i < n; i++)
+					goodIds[i] = in.readInt();
+				n = in.readInt();
+				int[] sons = (n == REQUEUE) ? null : new int[3 * n];
+				for (i = 0; i < 3 * n; i++)
+					sons[i] = in.readInt();
+				n = in.readInt();
+				ArrayList<route> incumbent = new ArrayList<route>(n);
+				for (i = 0; i < n; i++)
+					incumbent.add(checkpoint.readRoute(in, userParam));
+
+				synchronized (this) {
+					integrate(t, ids, bound, columns, good, goodIds, sons, incumbent);
+					t = null;
+				}
+			}
+			out.writeInt(STOP);
+			out.flush();
+			socket.close();
+		} catch (IOException e) {
+			System.err.println("COORDINATOR | worker lost: " + e);
+			synchronized (this) {
+				if (t != null) {
+					// solve this node again with another worker
+					running.remove(t);
+					open.add(t);
+					notifyAll();
+				}
+			}
+		}
+	}
+
+	// next node to solve, null when the search is over (called with the lock)
+	task next() {
+		while (true) {
+			if (finished)
+				return null;
+			if ((upperbound - lowerbound) / upperbound < userParam.gap)
+				open.clear();
+			if (!open.isEmpty()) {
+				task t = open.remove(open.size() - 1);
+				running.add(t);
+				return t;
+			}
+			if (running.isEmpty()) {
+				finished = true;
+				notifyAll();
+				return null;
+			}
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return null;
+			}
+		}
+	}
+
+	// result of a node sent by a worker (called with the lock), sons null if the node was not solved
+	void integrate(task t, int[] ids, double bound, ArrayList<route> columns, boolean[] good,
+	               int[] goodIds, int[] sons, ArrayList<route> incumbent) {
+		int i, k;
+		running.remove(t);
+		if (sons != null)
+			nbNodes++;
+
+		// a column sent by several workers is only once in the pool
+		LinkedHashSet<Integer> all = new LinkedHashSet<Integer>();
+		for (int id : ids)
+			all.add(id);
+		for (i = 0; i < columns.size(); i++) {
+			int id = pool.add(columns.get(i));
+			all.add(id);
+			if (good[i])
+				share(id);
+		}
+		int[] nodeRoutes = new int[all.size()];
+		k = 0;
+		for (Integer id : all)
+			nodeRoutes[k++] = id;
+		for (int id : goodIds)
+			share(id);
+
+		if (!incumbent.isEmpty()) {
+			double cost = 0.0;
+			for (route r : incumbent)
+				cost += r.getcost();
+			if (cost < upperbound) {
+				upperbound = cost;
+				bestRoutes = incumbent;
+				System.out.println("OPT | Upper bound: " + upperbound + " | BB Depth: " + t.depth);
+			}
+		}
+
+		if (sons == null) {
+			// not solved: the same node again, its CG starting from the columns found so far
+			t.routes = nodeRoutes;
+			open.add(t);
+		} else if (bound <= upperbound) {
+			// sons: in the order of the worker (the last one is solved first)
+			for (i = 0; i < sons.length; i += 3) {
+				task son = new task();
+				son.decisions = new int[t.decisions.length + 3];
+				System.arraycopy(t.decisions, 0, son.decisions, 0, t.decisions.length);
+				System.arraycopy(sons, i, son.decisions, t.decisions.length, 3);
+				son.bound = bound;
+				son.routes = nodeRoutes;
+				son.depth = t.depth + 1;
+				open.add(son);
+			}
+		}
+
+		// global lower bound: all the nodes not solved yet
+		double lb = upperbound;
+		for (task o : open)
+			lb = Math.min(lb, o.bound);
+		for (task o : running)
+			lb = Math.min(lb, o.bound);
+		lowerbound = lb;
+		System.out.println("NODE " + nbNodes + " | Lower bound: " + lowerbound
+				+ " | Upper bound: " + upperbound + " | Gap: "
+				+ ((upperbound - lowerbound) / upperbound) + " | " + open.size() + " open | "
+				+ running.size() + " running | " + pool.size() + " routes");
+		notifyAll();
+	}
+
+	void share(int id) {
+		shared.remove(id);
+		shared.add(id); // most recent last
+		if (shared.size() > MAXSHARED)
+			shared.remove(shared.iterator().next());
+	}
+}
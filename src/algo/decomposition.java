@@ -0,0 +1,467 @@
+package algo;
+
+// spatial decomposition of the very large instances (see Main -decompose)
+// the Branch and Price can't solve 1000 clients, but it solves a few dozens of them well:
+// 1. clusters of about clusterSize clients: k-means on the position of the clients and the middle
+//    of their time window (a time x speed is a distance, weighted by timeWeight: a route serves
+//    its clients one after the other during the day, so the position matters more)
+// 2. each cluster is an instance (paramsVRP.subInstance) solved by the B&B with a time limit,
+//    the clusters in parallel. Together, their solutions serve all the clients: a solution
+//    of the whole instance, improved by the local search (its routes can then cross the clusters)
+// 3. re-optimization of the boundaries: two neighbouring clusters give a region, the clients of
+//    the routes of the solution serving them. The region is solved again by the B&B, with these
+//    routes as incumbent and the routes of the pool inside the region as first columns; a better
+//    solution replaces them. The regions without common routes are solved in parallel; rounds
+//    on all the pairs of neighbours until no region improves or the time limit
+// the pool gathers the routes generated by all these B&B (numbered as in the whole instance)
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+public class decomposition {
+	static final int DEFAULTTIME = 300; // seconds, if there is no paramsVRP.timeLimit
+	static final int NEIGHBOURS = 3;    // nearest clusters of a cluster, for the boundary regions
+	static final int MAXREGION = 3;     // max number of clients of a region, in clusterSize
+
+	paramsVRP userParam;
+	int clusterSize;           // clients per cluster (on average)
+	int threads;               // sub-instances solved at the same time
+	double timeWeight;         // weight of the time in the k-means (1 = as a distance)
+	int[] cluster;             // cluster of each client (index 1..nbclients)
+	ArrayList<int[]> parts;    // clients of each cluster (increasing order)
+	columnPool pool;           // all the routes found
+	ArrayList<route> solution; // current solution of the whole instance
+	long deadline;
+	ExecutorService executor;
+
+	public decomposition(paramsVRP userParam, int clusterSize, int threads) {
+		this.userParam = userParam;
+		this.clusterSize = clusterSize;
+		this.threads = threads;
+		timeWeight = 0.1;
+		pool = new columnPool();
+	}
+
+	public ArrayList<route> solve() {
+		int i;
+		int timeLimit = (userParam.timeLimit > 0) ? userParam.timeLimit : DEFAULTTIME;
+		long start = System.currentTimeMillis();
+		deadline = start + 1000L * timeLimit;
+		executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "decomposition");
+				t.setDaemon(true); // don't keep the JVM alive
+				return t;
+			}
+		});
+		try {
+			// ---- 1. the clusters, with 40% of the time
+			clusters();
+			int seconds = Math.max(5, (int) Math.min(0.4 * timeLimit, 0.4 * timeLimit * threads / parts.size()));
+			System.out.println("DECOMP | " + parts.size() + " clusters | " + seconds + " s per cluster");
+			ArrayList<int[]> regions = new ArrayList<int[]>(parts);
+			ArrayList<ArrayList<route>> sols = solveAll(regions, null, seconds);
+			solution = new ArrayList<route>();
+			for (i = 0; i < parts.size(); i++)
+				if (sols.get(i) != null)
+					solution.addAll(sols.get(i));
+			solution = cover(solution);
+			System.out.println("DECOMP | clusters: " + cost(solution) + " (" + solution.size() + " routes)");
+			improve(start + 500L * timeLimit);
+			System.out.println("DECOMP | local search: " + cost(solution));
+
+			// ---- 2. the boundaries, until the time limit
+			ArrayList<int[]> pairs = neighbours();
+			seconds = Math.max(5, (int) Math.min(60, 0.5 * timeLimit * threads / Math.max(1, pairs.size())));
+			boundaries(pairs, seconds);
+		} finally {
+			executor.shutdownNow();
+		}
+		System.out.println("DECOMP | best: " + cost(solution) + " (" + solution.size() + " routes, "
+				+ pool.size() + " routes in the pool, " + (System.currentTimeMillis() - start) / 1000 + " s)");
+		return solution;
+	}
+
+	// ---- clusters
+
+	// k-means with k = nbclients / clusterSize; the clusters with more than 2 x clusterSize
+	// clients (dense areas) are split again
+	void clusters() {
+		int i, n = userParam.nbclients;
+		double[][] p = new double[n + 1][];
+		for (i = 1; i <= n; i++)
+			p[i] = new double[]{userParam.posx[i], userParam.posy[i],
+					timeWeight * userParam.speed * 0.5 * (userParam.aInput[i] + userParam.bInput[i])};
+		Random rnd = new Random(0); // same clusters at each run
+		ArrayList<int[]> todo = new ArrayList<int[]>();
+		int[] all = new int[n];
+		for (i = 0; i < n; i++)
+			all[i] = i + 1;
+		todo.add(all);
+		parts = new ArrayList<int[]>();
+		while (!todo.isEmpty()) {
+			int[] clients = todo.remove(todo.size() - 1);
+			int k = (clients.length + clusterSize - 1) / clusterSize;
+			int[] assign = kmeans(p, clients, k, rnd);
+			for (int c = 0; c < k; c++) {
+				int nb = 0;
+				for (int a : assign)
+					if (a == c)
+						nb++;
+				if (nb == 0)
+					continue;
+				int[] part = new int[nb];
+				nb = 0;
+				for (i = 0; i < clients.length; i++)
+					if (assign[i] == c)
+						part[nb++] = clients[i];
+				if ((nb > 2 * clusterSize) && (nb < clients.length))
+					todo.add(part);
+				else
+					parts.add(part);
+			}
+		}
+		cluster = new int[n + 2];
+		for (int c = 0; c < parts.size(); c++)
+			for (int client : parts.get(c))
+				cluster[client] = c;
+	}
+
+	// Lloyd's algorithm from centers chosen by k-means++; returns the cluster of each client
+	static int[] kmeans(double[][] p, int[] clients, int k, Random rnd) {
+		int i, c, m = clients.length, dim = p[clients[0]].length;
+		double[][] center = new double[k][];
+		double[] best = new double[m];
+		center[0] = p[clients[rnd.nextInt(m)]].clone();
+		Arrays.fill(best, Double.POSITIVE_INFINITY);
+		for (c = 1; c < k; c++) {
+			// next center: a client drawn with a probability proportional to its squared distance
+			double sum = 0;
+			for (i = 0; i < m; i++) {
+				best[i] = Math.min(best[i], dist2(p[clients[i]], center[c - 1]));
+				sum += best[i];
+			}
+			double r = rnd.nextDouble() * sum;
+			for (i = 0; (i < m - 1) && (r >= best[i]); i++)
+				r -= best[i];
+			center[c] = p[clients[i]].clone();
+		}
+
+		int[] assign = new int[m];
+		Arrays.fill(assign, -1);
+		boolean changed = true;
+		for (int iter = 0; changed && (iter < 100); iter++) {
+			changed = false;
+			for (i = 0; i < m; i++) {
+				int nearest = 0;
+				for (c = 1; c < k; c++)
+					if (dist2(p[clients[i]], center[c]) < dist2(p[clients[i]], center[nearest]))
+						nearest = c;
+				if (assign[i] != nearest) {
+					assign[i] = nearest;
+					changed = true;
+				}
+			}
+			double[][] sum = new double[k][dim];
+			int[] nb = new int[k];
+			for (i = 0; i < m; i++) {
+				nb[assign[i]]++;
+				for (int x = 0; x < dim; x++)
+					sum[assign[i]][x] += p[clients[i]][x];
+			}
+			for (c = 0; c < k; c++)
+				if (nb[c] > 0)
+					for (int x = 0; x < dim; x++)
+						center[c][x] = sum[c][x] / nb[c];
+		}
+		return assign;
+	}
+
+	static double dist2(double[] u, double[] v) {
+		double s = 0;
+		for (int x = 0; x < u.length; x++)
+			s += (u[x] - v[x]) * (u[x] - v[x]);
+		return s;
+	}
+
+	// pairs of neighbouring clusters (NEIGHBOURS nearest centers, in the plane), nearest first
+	ArrayList<int[]> neighbours() {
+		int c, e, k = parts.size();
+		final double[][] center = new double[k][2];
+		for (c = 0; c < k; c++) {
+			for (int client : parts.get(c)) {
+				center[c][0] += userParam.posx[client] / parts.get(c).length;
+				center[c][1] += userParam.posy[client] / parts.get(c).length;
+			}
+		}
+		ArrayList<int[]> pairs = new ArrayList<int[]>();
+		boolean[][] seen = new boolean[k][k];
+		for (c = 0; c < k; c++) {
+			Integer[] order = new Integer[k];
+			for (e = 0; e < k; e++)
+				order[e] = e;
+			final int from = c;
+			Arrays.sort(order, new Comparator<Integer>() {
+				public int compare(Integer x, Integer y) {
+					return Double.compare(dist2(center[from], center[x]), dist2(center[from], center[y]));
+				}
+			});
+			for (e = 1; (e <= NEIGHBOURS) && (e < k); e++) {
+				int a = Math.min(c, order[e]), b = Math.max(c, order[e]);
+				if (!seen[a][b]) {
+					seen[a][b] = true;
+					pairs.add(new int[]{a, b});
+				}
+			}
+		}
+		Collections.sort(pairs, new Comparator<int[]>() {
+			public int compare(int[] x, int[] y) {
+				return Double.compare(dist2(center[x[0]], center[x[1]]), dist2(center[y[0]], center[y[1]]));
+			}
+		});
+		return pairs;
+	}
+
+	// ---- boundaries
+
+	void boundaries(ArrayList<int[]> pairs, int seconds) {
+		int i;
+		boolean improved = true;
+		for (int round = 1; improved && (System.currentTimeMillis() < deadline); round++) {
+			improved = false;
+			int next = 0;
+			while ((next < pairs.size()) && (System.currentTimeMillis() < deadline)) {
+				// a batch of regions without common routes
+				boolean[] used = new boolean[solution.size()];
+				ArrayList<int[]> regions = new ArrayList<int[]>();
+				ArrayList<ArrayList<route>> olds = new ArrayList<ArrayList<route>>();
+				ArrayList<ArrayList<Integer>> oldIds = new ArrayList<ArrayList<Integer>>();
+				while ((next < pairs.size()) && (regions.size() < threads)) {
+					int[] pair = pairs.get(next++);
+					ArrayList<Integer> ids = new ArrayList<Integer>();
+					boolean free = true;
+					int size = 0;
+					for (i = 0; i < solution.size(); i++) {
+						int[] path = solution.get(i).path;
+						for (int k = 1; k < path.length - 1; k++)
+							if ((cluster[path[k]] == pair[0]) || (cluster[path[k]] == pair[1])) {
+								ids.add(i);
+								free &= !used[i];
+								size += path.length - 2;
+								break;
+							}
+					}
+					if (!free) {
+						next--; // in the next batch, with the new solution
+						break;
+					}
+					if ((ids.size() < 2) || (size > MAXREGION * clusterSize))
+						continue;
+					ArrayList<route> old = new ArrayList<route>();
+					int[] clients = new int[size];
+					size = 0;
+					for (int id : ids) {
+						used[id] = true;
+						old.add(solution.get(id));
+						int[] path = solution.get(id).path;
+						for (int k = 1; k < path.length - 1; k++)
+							clients[size++] = path[k];
+					}
+					Arrays.sort(clients);
+					regions.add(clients);
+					olds.add(old);
+					oldIds.add(ids);
+				}
+				if (regions.isEmpty())
+					continue;
+
+				int left = (int) ((deadline - System.currentTimeMillis()) / 1000);
+				ArrayList<ArrayList<route>> sols = solveAll(regions, olds, Math.max(1, Math.min(seconds, left)));
+				boolean[] removed = new boolean[solution.size()];
+				ArrayList<route> added = new ArrayList<route>();
+				for (int r = 0; r < regions.size(); r++) {
+					ArrayList<route> sol = sols.get(r);
+					if ((sol != null) && (cost(sol) < cost(olds.get(r)) - 1e-6)) {
+						for (int id : oldIds.get(r))
+							removed[id] = true;
+						added.addAll(sol);
+						improved = true;
+					}
+				}
+				if (!added.isEmpty()) {
+					ArrayList<route> better = new ArrayList<route>();
+					for (i = 0; i < solution.size(); i++)
+						if (!removed[i])
+							better.add(solution.get(i));
+					better.addAll(added);
+					solution = cover(better);
+				}
+			}
+			if (improved)
+				improve(deadline);
+			System.out.println("DECOMP | boundaries, round " + round + ": " + cost(solution));
+		}
+	}
+
+	// ---- sub-instances
+
+	// the B&B on each region (clients of the whole instance), in parallel: best solution of each
+	// region (null if none), starting from the routes of incumbents (can be null)
+	ArrayList<ArrayList<route>> solveAll(ArrayList<int[]> regions, final ArrayList<ArrayList<route>> incumbents,
+			final int seconds) {
+		ArrayList<Future<ArrayList<route>>> futures = new ArrayList<Future<ArrayList<route>>>();
+		for (int r = 0; r < regions.size(); r++) {
+			final int[] clients = regions.get(r);
+			final ArrayList<route> incumbent = (incumbents == null) ? null : incumbents.get(r);
+			futures.add(executor.submit(new Callable<ArrayList<route>>() {
+				public ArrayList<route> call() throws Exception {
+					return solveRegion(clients, incumbent, seconds);
+				}
+			}));
+		}
+		ArrayList<ArrayList<route>> sols = new ArrayList<ArrayList<route>>();
+		for (Future<ArrayList<route>> f : futures) {
+			try {
+				sols.add(f.get());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				sols.add(null);
+			} catch (ExecutionException e) {
+				System.err.println("DECOMP | sub-instance failed: " + e.getCause());
+				sols.add(null);
+			}
+		}
+		return sols;
+	}
+
+	ArrayList<route> solveRegion(int[] clients, ArrayList<route> incumbent, int seconds) throws Exception {
+		paramsVRP sub = userParam.subInstance(clients);
+		sub.timeLimit = seconds;
+		// no more threads: the other threads solve the other regions
+		sub.lsThreads = 0;
+		sub.asyncPricing = false;
+		int[] index = new int[userParam.nbclients + 2]; // vertex of the whole instance -> vertex of sub
+		Arrays.fill(index, -1);
+		index[0] = 0;
+		index[userParam.nbclients + 1] = sub.nbclients + 1;
+		for (int k = 0; k < clients.length; k++)
+			index[clients[k]] = k + 1;
+		int[] back = new int[sub.nbclients + 2]; // and back
+		back[0] = 0;
+		back[sub.nbclients + 1] = userParam.nbclients + 1;
+		for (int k = 0; k < clients.length; k++)
+			back[k + 1] = clients[k];
+
+		// first columns: the routes of the pool inside the region
+		ArrayList<route> init = new ArrayList<route>();
+		synchronized (pool) {
+			for (int id = 0; id < pool.size(); id++) {
+				route r = map(pool.get(id), index, sub);
+				if (r != null)
+					init.add(r);
+			}
+		}
+		ArrayList<route> start = null;
+		if (incumbent != null) {
+			start = new ArrayList<route>();
+			for (route r : incumbent)
+				start.add(map(r, index, sub));
+		}
+
+		branchandbound bp = new branchandbound();
+		solveResult result = bp.solve(sub, init, start, null);
+		ArrayList<route> generated = bp.pool.toList();
+		synchronized (pool) {
+			for (route r : generated)
+				if (r.cost < userParam.verybig - 1e-6)
+					pool.add(map(r, back, userParam));
+		}
+		if (!result.hasSolution())
+			return null;
+		ArrayList<route> sol = new ArrayList<route>();
+		for (route r : result.routes)
+			sol.add(map(r, back, userParam));
+		return sol;
+	}
+
+	// the route in the numbering of another instance (index: its vertex for each vertex of the
+	// route, -1 if none => null)
+	static route map(route r, int[] index, paramsVRP target) {
+		int[] path = new int[r.path.length];
+		for (int k = 0; k < path.length; k++) {
+			path[k] = index[r.path[k]];
+			if (path[k] < 0)
+				return null;
+		}
+		return new route(path, target);
+	}
+
+	// ---- whole solution
+
+	// each client served once: a client already served is removed from the next routes (if the
+	// route is still feasible, otherwise its clients left are served alone), and the clients
+	// not served at all get a trivial route
+	ArrayList<route> cover(ArrayList<route> routes) {
+		int n = userParam.nbclients;
+		boolean[] served = new boolean[n + 2];
+		ArrayList<route> result = new ArrayList<route>();
+		int[] buf = new int[n + 2];
+		for (route r : routes) {
+			int size = 0;
+			for (int city : r.path)
+				if ((city == 0) || (city == n + 1) || !served[city])
+					buf[size++] = city;
+			if (size <= 2)
+				continue;
+			if (size < r.path.length) {
+				route shorter = new route(Arrays.copyOf(buf, size), userParam);
+				if (shorter.isFeasible(userParam))
+					r = shorter;
+				else {
+					for (int k = 1; k < size - 1; k++) {
+						served[buf[k]] = true;
+						result.add(route.single(buf[k], userParam));
+					}
+					continue;
+				}
+			}
+			for (int k = 1; k < size - 1; k++)
+				served[buf[k]] = true;
+			result.add(r);
+		}
+		for (int i = 1; i <= n; i++)
+			if (!served[i])
+				result.add(route.single(i, userParam));
+		return result;
+	}
+
+	// local search on the whole solution (see localSearch), its routes go to the pool
+	void improve(long until) {
+		ArrayList<int[]> better = new localSearch(userParam).improve(branchandbound.paths(solution),
+				Math.min(until, deadline));
+		ArrayList<route> sol = new ArrayList<route>(better.size());
+		for (int[] p : better)
+			sol.add(new route(p, userParam));
+		if (cost(sol) < cost(solution) - 1e-6)
+			solution = sol;
+		synchronized (pool) {
+			pool.addAll(solution);
+		}
+	}
+
+	static double cost(ArrayList<route> routes) {
+		long c = 0;
+		for (route r : routes)
+			c += Math.round(r.cost * paramsVRP.SCALE);
+		return (double) c / paramsVRP.SCALE;
+	}
+}
@@ -0,0 +1,208 @@
+package algo;
+
+// enumeration of all the elementary routes with a small reduced cost (see branchandbound.enumerate)
+// with the duals pi of a converged CG (LP value z = sum(pi), no route with a negative reduced cost),
+// any solution S costs at least z + sum of the reduced costs of its routes, so a route of a solution
+// cheaper than the incumbent UB has a reduced cost <= UB - z (the gap). When the gap is small,
+// there are few such routes: the MIP on these routes alone gives the optimal solution
+//
+// a modified SPPRC:
+// - a label is only dominated by a label at the same vertex with the SAME visited clients
+//   (lower cost and earlier time): all the other paths are kept, they can lead to other columns
+// - cost bound: a label is dropped if its cost plus a lower bound on the cost of any completion
+//   to the depot is larger than the gap. The bound f[i][t] (from vertex i at time t) is computed by
+//   a dynamic programming on the integer times, without capacity nor elementarity
+// - the labels are extended by number of visited clients (all the labels with the same visited
+//   clients are created together, before being extended)
+// the search stops (null) if there are more than limit routes: the B&B goes on as usual
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+public class enumSPPRC extends SPPRC {
+	static final long MAXDP = 20000000; // max size of the table of the completion bounds
+
+	int limit;          // max number of routes
+	double[][] rc;      // reduced costs (with the original distances)
+	double[][] f;       // completion bounds: f[i][t] = min reduced cost from i at time t to the depot
+	int nbLabels;       // result: number of labels created
+
+	// vertex and visited clients of a label
+	static class state {
+		int city;
+		long[] visited;
+		int hash;
+
+		state(int city, long[] visited) {
+			this.city = city;
+			this.visited = visited;
+			this.hash = 31 * Arrays.hashCode(visited) + city;
+		}
+
+		public boolean equals(Object o) {
+			return (o instanceof state) && (((state) o).city == city) && Arrays.equals(((state) o).visited, visited);
+		}
+
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+	public enumSPPRC(int limit) {
+		this.limit = limit;
+	}
+
+	// all the elementary routes with a reduced cost <= gap, null if more than limit
+	public ArrayList<route> enumerate(paramsVRP userParamArg, double[] pi, double gap) {
+		int i, j;
+		this.userParam = userParamArg;
+		int n = userParam.nbclients;
+		int nbWords = (n + 2 + 63) >>> 6;
+		rc = new double[n + 2][];
+		for (i = 0; i < n + 2; i++) {
+			rc[i] = userParam.distBase[i].clone();
+			if ((i >= 1) && (i <= n))
+				vectorOps.subtract(userParam.distBase[i], 0, rc[i], 0, n + 2, pi[i - 1]);
+		}
+		if (!completionBounds())
+			return null;
+
+		labels = new ArrayList<label>();
+		long[] start = new long[nbWords];
+		start[0] = 1L;
+		labels.add(new label(0, -1, 0.0, 0, 0, false, start));
+		ArrayList<Integer> layer = new ArrayList<Integer>();
+		layer.add(0);
+		HashMap<state, Integer> toDepot = new HashMap<state, Integer>(); // best label to the depot per set of clients
+
+		while (!layer.isEmpty()) {
+			HashMap<state, ArrayList<Integer>> states = new HashMap<state, ArrayList<Integer>>();
+			ArrayList<Integer> next = new ArrayList<Integer>();
+			for (int idx : layer) {
+				label current = labels.get(idx);
+				if (current.dominated)
+					continue;
+				if ((deadline > 0) && (System.currentTimeMillis() > deadline))
+					return null;
+				for (int k = 0; k < userParam.succ[current.city].length; k++) {
+					j = userParam.succ[current.city][k];
+					if (((current.vertexVisited[j >>> 6] & (1L << j)) != 0)
+							|| (userParam.distBase[current.city][j] >= userParam.verybig - 1e-6))
+						continue;
+					int tt = current.tTime + userParam.ttimeInt[current.city][j] + userParam.sInt[current.city];
+					if (tt < userParam.aInt[j])
+						tt = userParam.aInt[j];
+					int d = current.demand + userParam.demand[j];
+					if ((tt > userParam.bInt[j]) || (d > userParam.capacity))
+						continue;
+					double c = current.cost + rc[current.city][j];
+					if (c + f[j][tt / paramsVRP.SCALE] > gap + 1e-6)
+						continue; // cost bound: no completion with a reduced cost <= gap
+
+					long[] visited = current.vertexVisited.clone();
+					visited[j >>> 6] |= 1L << j;
+					state st = new state(j, visited);
+					if (j == n + 1) {
+						// at the depot: only the cheapest route for a set of clients
+						Integer other = toDepot.get(st);
+						if ((other != null) && (labels.get(other).cost <= c))
+							continue;
+						toDepot.put(st, labels.size());
+						labels.add(new label(j, idx, c, tt, d, false, visited));
+						if (toDepot.size() > limit)
+							return null;
+						continue;
+					}
+					ArrayList<Integer> same = states.get(st);
+					if (same == null) {
+						same = new ArrayList<Integer>(2);
+						states.put(st, same);
+					} else {
+						// dominance between the labels with the same visited clients (and same demand)
+						boolean dominated = false;
+						for (int o = 0; o < same.size(); o++) {
+							label lo = labels.get(same.get(o));
+							if ((lo.cost <= c) && (lo.tTime <= tt)) {
+								dominated = true;
+								break;
+							}
+							if ((c <= lo.cost) && (tt <= lo.tTime)) {
+								lo.dominated = true;
+								same.remove(o--);
+							}
+						}
+						if (dominated)
+							continue;
+					}
+					same.add(labels.size());
+					next.add(labels.size());
+					labels.add(new label(j, idx, c, tt, d, false, visited));
+					if (labels.size() > 50L * limit)
+						return null; // too many partial paths
+				}
+			}
+			layer = next;
+		}
+		nbLabels = labels.size();
+
+		ArrayList<route> routes = new ArrayList<route>(toDepot.size());
+		for (int idx : toDepot.values())
+			routes.add(new route(path(idx), userParam));
+		return routes;
+	}
+
+	// f[i][t] for the times t = 0..max(b) in units (not tenths), from the last times to the first ones
+	// (arrival at j at time arr: f[j][floor(arr)] <= f[j][arr] as f increases with the time)
+	boolean completionBounds() {
+		int i, j, t;
+		int n = userParam.nbclients;
+		int horizon = 0;
+		int scale = paramsVRP.SCALE;
+		for (i = 0; i < n + 2; i++)
+			horizon = Math.max(horizon, userParam.bInt[i] / scale);
+		if ((long) (n + 2) * (horizon + 1) > MAXDP)
+			return false;
+		f = new double[n + 2][horizon + 1];
+		for (i = 0; i < n + 1; i++)
+			Arrays.fill(f[i], Double.POSITIVE_INFINITY);
+		for (t = 0; t <= horizon; t++)
+			f[n + 1][t] = (t * scale <= userParam.bInt[n + 1]) ? 0.0 : Double.POSITIVE_INFINITY;
+		for (t = horizon; t >= 0; t--) {
+			// an arc with a (travel + service) time < 1 stays at time t: repeat until stable
+			boolean again = true;
+			for (int pass = 0; again && (pass < n + 2); pass++) {
+				boolean sameTime = false, changed = false;
+				for (i = 0; i < n + 1; i++) {
+					if (t * scale > userParam.bInt[i])
+						continue;
+					double best = Double.POSITIVE_INFINITY;
+					for (int k = 0; k < userParam.succ[i].length; k++) {
+						j = userParam.succ[i][k];
+						if (userParam.distBase[i][j] >= userParam.verybig - 1e-6)
+							continue;
+						int arr = t * scale + userParam.sInt[i] + userParam.ttimeInt[i][j];
+						if (arr > userParam.bInt[j])
+							continue;
+						int tj = Math.max(arr, userParam.aInt[j]) / scale;
+						if (tj == t)
+							sameTime = true;
+						best = Math.min(best, rc[i][j] + f[j][tj]);
+					}
+					if (best < f[i][t] - 1e-9) {
+						f[i][t] = best;
+						changed = true;
+					}
+				}
+				again = sameTime && changed;
+			}
+			if (again) {
+				// a cycle with a negative cost at the same time: no bound at this time
+				for (i = 0; i < n + 1; i++)
+					if (t * scale <= userParam.bInt[i])
+						f[i][t] = Double.NEGATIVE_INFINITY;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,117 @@
+package algo;
+
+// background improvement of the solutions found by the Branch and Price (see localSearch)
+// the B&B submits the new incumbents and the solutions rounded from the LP of the nodes;
+// the threads improve them and put the results in a queue; the B&B reads this queue
+// between two nodes (poll): better upper bound, and the routes become new columns
+//
+// only a few solutions wait for a thread: when the threads are late, the oldest ones are dropped
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+public class improver {
+	static final long MAXTIME = 2000; // max time (ms) of the local search on one solution
+
+	paramsVRP userParam;
+	ThreadPoolExecutor executor;
+	ConcurrentLinkedQueue<ArrayList<route>> results;
+
+	public improver(paramsVRP userParam, int nbThreads) {
+		this.userParam = userParam;
+		results = new ConcurrentLinkedQueue<ArrayList<route>>();
+		executor = new ThreadPoolExecutor(nbThreads, nbThreads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(2 * nbThreads), new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "local search");
+				t.setDaemon(true); // don't keep the JVM alive
+				return t;
+			}
+		}, new ThreadPoolExecutor.DiscardOldestPolicy());
+	}
+
+	// improve this solution (paths from depot to depot, covering all the clients)
+	public void submit(final ArrayList<int[]> paths) {
+		executor.execute(new Runnable() {
+			public void run() {
+				localSearch ls = new localSearch(userParam);
+				double before = localSearch.cost(paths, userParam);
+				ArrayList<int[]> better = ls.improve(paths, System.currentTimeMillis() + MAXTIME);
+				if (localSearch.cost(better, userParam) < before - 1e-6) {
+					ArrayList<route> sol = new ArrayList<route>(better.size());
+					for (int[] p : better)
+						sol.add(new route(p, userParam));
+					results.add(sol);
+				}
+			}
+		});
+	}
+
+	// next improved solution, null if none
+	public ArrayList<route> poll() {
+		return results.poll();
+	}
+
+	// stop the threads, after at most waitMs ms for the solutions being improved
+	// (the solutions still waiting for a thread are dropped)
+	public void shutdown(long waitMs) {
+		executor.getQueue().clear();
+		if (executor.getActiveCount() == 0) {
+			executor.shutdownNow(); // nothing running: no need to wait
+			return;
+		}
+		executor.shutdown();
+		try {
+			executor.awaitTermination(waitMs, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		executor.shutdownNow();
+	}
+
+	// a solution built from the LP solution of a node: the columns are taken by decreasing value,
+	// without the clients already served; the clients left are served by trivial routes
+	public static ArrayList<int[]> roundLP(paramsVRP userParam, columnPool pool, int[] columns, double[] x) {
+		int i, k;
+		Integer[] order = new Integer[columns.length];
+		for (k = 0; k < columns.length; k++)
+			order[k] = k;
+		final double[] val = x;
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				return Double.compare(val[b], val[a]);
+			}
+		});
+
+		boolean[] served = new boolean[userParam.nbclients + 2];
+		ArrayList<int[]> paths = new ArrayList<int[]>();
+		int[] buf = new int[userParam.nbclients + 2];
+		for (Integer o : order) {
+			if (x[o] < 1e-6)
+				break;
+			int[] path = pool.get(columns[o]).path;
+			int size = 0;
+			for (int city : path)
+				if ((city == 0) || (city == userParam.nbclients + 1) || !served[city])
+					buf[size++] = city;
+			if (size <= 2)
+				continue;
+			int[] p = Arrays.copyOf(buf, size);
+			if ((size < path.length) && !new route(p, userParam).isFeasible(userParam))
+				continue; // (without the triangle inequality, removing a client can break the time windows)
+			for (i = 1; i < size - 1; i++)
+				served[p[i]] = true;
+			paths.add(p);
+		}
+		for (i = 1; i <= userParam.nbclients; i++)
+			if (!served[i])
+				paths.add(new int[]{0, i, userParam.nbclients + 1});
+		return paths;
+	}
+}
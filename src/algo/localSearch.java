@@ -0,0 +1,339 @@
+package algo;
+
+// local search on a complete solution (a set of routes covering all the clients)
+// used by the improver to get better upper bounds and new columns for the Branch and Price
+//
+// moves (first improvement, until no move improves the cost or the deadline):
+// - relocate: move one client to another route
+// - exchange: swap two clients of two different routes
+// - 2-opt*:   swap the ends of two routes
+// - Or-opt:   move a chain of 2 or 3 clients to another route,
+//             or a chain of 1 to 3 clients to another place of the same route
+//
+// the time windows of a route are summarized by two values for each position k:
+// est[k] = earliest start of the service at k (forward, from the depot)
+// lst[k] = latest start of the service at k such that the end of the route stays feasible (backward)
+// a move changing the route between the positions i and j is feasible if, starting from est[i],
+// the new vertices can be served in their time windows and j is reached before lst[j]
+// => O(1) for the moves between two routes. The moves inside a route are checked with
+// their cost first and the whole route is checked only if the cost improves
+// the distances are distBase (no branching), the load of a route is checked with prefix sums
+// all in integers (paramsVRP.distInt, ttimeInt...: tenths): the gains and the checks are exact
+
+import java.util.ArrayList;
+
+public class localSearch {
+	static final int NONE = Integer.MAX_VALUE; // start of service when a vertex can't be served
+
+	paramsVRP userParam;
+	ArrayList<int[]> routes;  // paths from the depot 0 to the depot nbclients+1
+	ArrayList<int[]> est;  // earliest start of the service at each position
+	ArrayList<int[]> lst;  // latest start of the service at each position
+	ArrayList<int[]> load; // load from the depot up to each position (included)
+	long deadline;
+
+	public localSearch(paramsVRP userParam) {
+		this.userParam = userParam;
+	}
+
+	// improve the solution given as a set of paths; returns the new paths
+	public ArrayList<int[]> improve(ArrayList<int[]> paths, long deadline) {
+		this.deadline = deadline;
+		routes = new ArrayList<int[]>();
+		est = new ArrayList<int[]>();
+		lst = new ArrayList<int[]>();
+		load = new ArrayList<int[]>();
+		for (int[] p : paths)
+			if (p.length > 2)
+				add(p.clone());
+
+		boolean improved = true;
+		while (improved && (System.currentTimeMillis() < deadline)) {
+			improved = relocate() || exchange() || twoOptStar() || orOpt();
+		}
+		return new ArrayList<int[]>(routes);
+	}
+
+	public static double cost(ArrayList<int[]> paths, paramsVRP userParam) {
+		long c = 0;
+		for (int[] p : paths)
+			for (int i = 1; i < p.length; i++)
+				c += userParam.distInt[p[i - 1]][p[i]];
+		return (double) c / paramsVRP.SCALE;
+	}
+
+	// ---- resources of the routes
+
+	void add(int[] p) {
+		routes.add(p);
+		est.add(new int[p.length]);
+		lst.add(new int[p.length]);
+		load.add(new int[p.length]);
+		update(routes.size() - 1);
+	}
+
+	void set(int k, int[] p) {
+		if (p.length <= 2) { // no more client
+			int last = routes.size() - 1;
+			routes.set(k, routes.get(last));
+			est.set(k, est.get(last));
+			lst.set(k, lst.get(last));
+			load.set(k, load.get(last));
+			routes.remove(last);
+			est.remove(last);
+			lst.remove(last);
+			load.remove(last);
+			return;
+		}
+		routes.set(k, p);
+		est.set(k, new int[p.length]);
+		lst.set(k, new int[p.length]);
+		load.set(k, new int[p.length]);
+		update(k);
+	}
+
+	void update(int k) {
+		int[] p = routes.get(k);
+		int[] e = est.get(k);
+		int[] l = lst.get(k);
+		int[] q = load.get(k);
+		int n = p.length;
+		e[0] = userParam.aInt[p[0]];
+		q[0] = 0;
+		for (int i = 1; i < n; i++) {
+			e[i] = Math.max(userParam.aInt[p[i]], e[i - 1] + userParam.sInt[p[i - 1]] + userParam.ttimeInt[p[i - 1]][p[i]]);
+			q[i] = q[i - 1] + userParam.demand[p[i]];
+		}
+		l[n - 1] = userParam.bInt[p[n - 1]];
+		for (int i = n - 2; i >= 0; i--)
+			l[i] = Math.min(userParam.bInt[p[i]], l[i + 1] - userParam.sInt[p[i]] - userParam.ttimeInt[p[i]][p[i + 1]]);
+	}
+
+	// (FORBIDDEN for a removed arc: the sums of a few of them don't overflow)
+	int c(int i, int j) {
+		return userParam.distInt[i][j];
+	}
+
+	// start of the service at city after prev (served at t), NONE if not possible
+	int next(int prev, int t, int city) {
+		if ((t == NONE) || (userParam.distBase[prev][city] >= userParam.verybig - 1e-6))
+			return NONE;
+		int tt = Math.max(userParam.aInt[city], t + userParam.sInt[prev] + userParam.ttimeInt[prev][city]);
+		return (tt <= userParam.bInt[city]) ? tt : NONE;
+	}
+
+	// can the position pos of route k be reached at time t from prev (served at t)?
+	boolean joins(int prev, int t, int k, int pos) {
+		int city = routes.get(k)[pos];
+		return next(prev, t, city) <= lst.get(k)[pos];
+	}
+
+	// ---- moves
+
+	boolean relocate() {
+		for (int k1 = 0; k1 < routes.size(); k1++) {
+			int[] r1 = routes.get(k1);
+			for (int p = 1; p < r1.length - 1; p++) {
+				int u = r1[p];
+				int gain = c(r1[p - 1], u) + c(u, r1[p + 1]) - c(r1[p - 1], r1[p + 1]);
+				if (gain <= 0)
+					continue;
+				for (int k2 = 0; k2 < routes.size(); k2++) {
+					if (k2 == k1)
+						continue;
+					int[] r2 = routes.get(k2);
+					if (load.get(k2)[r2.length - 1] + userParam.demand[u] > userParam.capacity)
+						continue;
+					for (int q = 1; q < r2.length; q++) {
+						if (c(r2[q - 1], u) + c(u, r2[q]) - c(r2[q - 1], r2[q]) >= gain)
+							continue;
+						int t = next(r2[q - 1], est.get(k2)[q - 1], u);
+						if ((t == NONE) || !joins(u, t, k2, q))
+							continue;
+						if (!joins(r1[p - 1], est.get(k1)[p - 1], k1, p + 1))
+							continue;
+						int[] n2 = insert(r2, q, r1, p, p + 1);
+						int[] n1 = remove(r1, p, p + 1);
+						apply(k1, n1, k2, n2);
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	boolean exchange() {
+		for (int k1 = 0; k1 < routes.size(); k1++) {
+			int[] r1 = routes.get(k1);
+			for (int k2 = k1 + 1; k2 < routes.size(); k2++) {
+				int[] r2 = routes.get(k2);
+				for (int p = 1; p < r1.length - 1; p++) {
+					int u = r1[p];
+					for (int q = 1; q < r2.length - 1; q++) {
+						int v = r2[q];
+						int delta = c(r1[p - 1], v) + c(v, r1[p + 1]) - c(r1[p - 1], u) - c(u, r1[p + 1])
+								+ c(r2[q - 1], u) + c(u, r2[q + 1]) - c(r2[q - 1], v) - c(v, r2[q + 1]);
+						if (delta >= 0)
+							continue;
+						if ((load.get(k1)[r1.length - 1] - userParam.demand[u] + userParam.demand[v] > userParam.capacity)
+								|| (load.get(k2)[r2.length - 1] - userParam.demand[v] + userParam.demand[u] > userParam.capacity))
+							continue;
+						int t1 = next(r1[p - 1], est.get(k1)[p - 1], v);
+						if ((t1 == NONE) || !joins(v, t1, k1, p + 1))
+							continue;
+						int t2 = next(r2[q - 1], est.get(k2)[q - 1], u);
+						if ((t2 == NONE) || !joins(u, t2, k2, q + 1))
+							continue;
+						int[] n1 = r1.clone();
+						int[] n2 = r2.clone();
+						n1[p] = v;
+						n2[q] = u;
+						apply(k1, n1, k2, n2);
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	boolean twoOptStar() {
+		// r1[0..p] + r2[q+1..] and r2[0..q] + r1[p+1..]
+		for (int k1 = 0; k1 < routes.size(); k1++) {
+			int[] r1 = routes.get(k1);
+			int[] q1 = load.get(k1);
+			for (int k2 = k1 + 1; k2 < routes.size(); k2++) {
+				int[] r2 = routes.get(k2);
+				int[] q2 = load.get(k2);
+				for (int p = 0; p < r1.length - 1; p++) {
+					for (int q = 0; q < r2.length - 1; q++) {
+						if (((p == 0) && (q == 0)) || ((p == r1.length - 2) && (q == r2.length - 2)))
+							continue; // same routes
+						int delta = c(r1[p], r2[q + 1]) + c(r2[q], r1[p + 1]) - c(r1[p], r1[p + 1]) - c(r2[q], r2[q + 1]);
+						if (delta >= 0)
+							continue;
+						if ((q1[p] + q2[r2.length - 1] - q2[q] > userParam.capacity)
+								|| (q2[q] + q1[r1.length - 1] - q1[p] > userParam.capacity))
+							continue;
+						if (!joins(r1[p], est.get(k1)[p], k2, q + 1) || !joins(r2[q], est.get(k2)[q], k1, p + 1))
+							continue;
+						int[] n1 = new int[p + 1 + r2.length - q - 1];
+						System.arraycopy(r1, 0, n1, 0, p + 1);
+						System.arraycopy(r2, q + 1, n1, p + 1, r2.length - q - 1);
+						int[] n2 = new int[q + 1 + r1.length - p - 1];
+						System.arraycopy(r2, 0, n2, 0, q + 1);
+						System.arraycopy(r1, p + 1, n2, q + 1, r1.length - p - 1);
+						apply(k1, n1, k2, n2);
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	boolean orOpt() {
+		for (int k1 = 0; k1 < routes.size(); k1++) {
+			int[] r1 = routes.get(k1);
+			for (int len = 1; len <= 3; len++) {
+				for (int p = 1; p + len < r1.length; p++) {
+					// chain r1[p..e-1]
+					int e = p + len;
+					int first = r1[p], last = r1[e - 1];
+					int gain = c(r1[p - 1], first) + c(last, r1[e]) - c(r1[p - 1], r1[e]);
+					if (gain <= 0)
+						continue;
+					int chainLoad = load.get(k1)[e - 1] - load.get(k1)[p - 1];
+
+					// to another route (a single client: see relocate)
+					for (int k2 = 0; (len > 1) && (k2 < routes.size()); k2++) {
+						if (k2 == k1)
+							continue;
+						int[] r2 = routes.get(k2);
+						if (load.get(k2)[r2.length - 1] + chainLoad > userParam.capacity)
+							continue;
+						for (int q = 1; q < r2.length; q++) {
+							if (c(r2[q - 1], first) + c(last, r2[q]) - c(r2[q - 1], r2[q]) >= gain)
+								continue;
+							int t = chain(r2[q - 1], est.get(k2)[q - 1], r1, p, e);
+							if ((t == NONE) || !joins(last, t, k2, q))
+								continue;
+							if (!joins(r1[p - 1], est.get(k1)[p - 1], k1, e))
+								continue;
+							int[] n2 = insert(r2, q, r1, p, e);
+							int[] n1 = remove(r1, p, e);
+							apply(k1, n1, k2, n2);
+							return true;
+						}
+					}
+
+					// to another place of the same route: between r1[q-1] and r1[q]
+					for (int q = 1; q < r1.length; q++) {
+						if ((q >= p) && (q <= e))
+							continue;
+						if (c(r1[q - 1], first) + c(last, r1[q]) - c(r1[q - 1], r1[q]) >= gain)
+							continue;
+						int[] n1 = remove(r1, p, e);
+						int at = (q < p) ? q : q - len;
+						n1 = insert(n1, at, r1, p, e);
+						if (feasible(n1)) {
+							set(k1, n1);
+							return true;
+						}
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	// start of the service at the last vertex of the chain r[from..to-1], after prev served at t
+	int chain(int prev, int t, int[] r, int from, int to) {
+		for (int i = from; (i < to) && (t != NONE); i++) {
+			t = next(prev, t, r[i]);
+			prev = r[i];
+		}
+		return t;
+	}
+
+	boolean feasible(int[] p) {
+		int t = userParam.aInt[p[0]];
+		for (int i = 1; i < p.length; i++) {
+			t = next(p[i - 1], t, p[i]);
+			if (t == NONE)
+				return false;
+		}
+		return true;
+	}
+
+	// r with the chain src[from..to-1] inserted before the position q
+	static int[] insert(int[] r, int q, int[] src, int from, int to) {
+		int len = to - from;
+		int[] n = new int[r.length + len];
+		System.arraycopy(r, 0, n, 0, q);
+		System.arraycopy(src, from, n, q, len);
+		System.arraycopy(r, q, n, q + len, r.length - q);
+		return n;
+	}
+
+	// r without the positions from..to-1
+	static int[] remove(int[] r, int from, int to) {
+		int len = to - from;
+		int[] n = new int[r.length - len];
+		System.arraycopy(r, 0, n, 0, from);
+		System.arraycopy(r, to, n, from, r.length - to);
+		return n;
+	}
+
+	void apply(int k1, int[] n1, int k2, int[] n2) {
+		// the second route first: set() may move the last route at the place of an empty one
+		if (k2 > k1) {
+			set(k2, n2);
+			set(k1, n1);
+		} else {
+			set(k1, n1);
+			set(k2, n2);
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package algo;
+
+// results of the nodes already solved by the Branch and Price
+// the LP of a node only depends on the arcs forbidden by the branching decisions
+// (dist = verybig where distBase is not): two nodes with the same forbidden arcs, whatever
+// the order of the decisions leading to them, have the same LP => the CG is not solved again
+//
+// key: the sorted list of the forbidden arcs (i * (nbclients+2) + j)
+// value: bound of the node, ids and values of the columns of the final LP and the basis
+// (the basis of a node is also used to warm start the LP of its sons)
+// the size is bounded: the least recently used results are removed first
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class nodeCache {
+	int capacity;
+	LinkedHashMap<key, entry> map;
+	int hits, misses;
+
+	static class key {
+		int[] arcs; // forbidden arcs, in increasing order
+		int hash;
+
+		key(int[] arcs) {
+			this.arcs = arcs;
+			this.hash = Arrays.hashCode(arcs);
+		}
+
+		public boolean equals(Object o) {
+			return (o instanceof key) && (((key) o).hash == hash) && Arrays.equals(((key) o).arcs, arcs);
+		}
+
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+	static class entry {
+		double bound;   // value of the CG (lower bound of the node)
+		int[] columns;  // ids of the columns of the final LP
+		double[] x;     // their values
+		int[] vbasis;   // basis status of the columns (GRB.IntAttr.VBasis), null if unknown
+		int[] cbasis;   // basis status of the constraints (GRB.IntAttr.CBasis), null if unknown
+
+		entry(double bound, int[] columns, double[] x, int[] vbasis, int[] cbasis) {
+			this.bound = bound;
+			this.columns = columns;
+			this.x = x;
+			this.vbasis = vbasis;
+			this.cbasis = cbasis;
+		}
+	}
+
+	public nodeCache(int capacity) {
+		this.capacity = capacity;
+		// access order: get() moves the entry at the end, the eldest is the least recently used
+		map = new LinkedHashMap<key, entry>(16, 0.75f, true) {
+			protected boolean removeEldestEntry(Map.Entry<key, entry> eldest) {
+				return size() > nodeCache.this.capacity;
+			}
+		};
+		hits = 0;
+		misses = 0;
+	}
+
+	// key of the current node: the arcs forbidden in dist
+	public key key(paramsVRP userParam) {
+		int n = userParam.nbclients + 2;
+		int[] arcs = new int[16];
+		int nb = 0;
+		for (int i = 0; i < n; i++)
+			for (int j = 0; j < n; j++)
+				if ((userParam.dist[i][j] >= userParam.verybig - 1e-6)
+						&& (userParam.distBase[i][j] < userParam.verybig - 1e-6)) {
+					if (nb == arcs.length)
+						arcs = Arrays.copyOf(arcs, 2 * nb);
+					arcs[nb++] = i * n + j;
+				}
+		return new key(Arrays.copyOf(arcs, nb));
+	}
+
+	public entry get(key k) {
+		entry e = map.get(k);
+		if (e == null)
+			misses++;
+		else
+			hits++;
+		return e;
+	}
+
+	public void put(key k, entry e) {
+		if (capacity > 0)
+			map.put(k, e);
+	}
+
+	// new ids of the columns from, from+1...: newIds[id - from] (-1: no more in the pool)
+	// (a worker of the distributed B&B gets the ids of its columns from the coordinator)
+	public void renumber(int from, int[] newIds) {
+		Iterator<entry> it = map.values().iterator();
+		while (it.hasNext()) {
+			entry e = it.next();
+			int[] columns = e.columns;
+			for (int i = 0; i < columns.length; i++) {
+				if (columns[i] >= from) {
+					if (columns == e.columns)
+						columns = columns.clone(); // the array can be shared with other results
+					columns[i] = (columns[i] - from < newIds.length) ? newIds[columns[i] - from] : -1;
+					if (columns[i] < 0) {
+						it.remove();
+						break;
+					}
+				}
+			}
+			e.columns = columns;
+		}
+	}
+}
@@ -8,6 +8,9 @@ package algo;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 
 
 public class paramsVRP {
@@ -19,15 +22,40 @@ public class paramsVRP {
 	public double[][] dist; // distances that will be updated during the B&B before being used in the CG & SPPRC
 	public double[][] ttime;
 	public double[][] edges; // weight of each edge during branch and bound
+	public int[][] succ; // for each vertex, the successors reachable by time and capacity, sorted by earliest arrival
+	public long[][] reach; // for each vertex, bitset of the vertices in succ
 	public double[] posx, posy, d, wval;
 	public int[] a; // time windows: a=early, b=late, s=service
 	public int[] b;
 	public int[] s;
+	public int[] aInput, bInput; // time windows as read (a and b are tightened by preprocess)
+	// integer resources (see scale): the distances are truncated to 0.1 and the times, service times
+	// and demands of the instances are integers => times and distances in tenths (SCALE) are exact
+	// (with a speed other than 1, the travel times are rounded up: a route accepted is feasible)
+	// all the resources of the SPPRC, the feasibility checks and the costs of the routes use them
+	public static final int SCALE = 10;
+	public static final int FORBIDDEN = 1 << 28; // distInt of a removed arc (a few of them can be added without overflow)
+	public int[][] distInt; // distBase x SCALE
+	public int[][] ttimeInt; // ttime x SCALE
+	public int[] aInt, bInt, sInt; // time windows and service times x SCALE (aInt and bInt tightened by preprocess)
+	public int[] demand; // demands (d as integers)
 	public double verybig;
 	public double speed;
 	public double gap;
 	public double maxlength;
 	public boolean serviceInTW;
+	public String checkpointPath; // file where the B&B state is saved (null = no checkpoint)
+	public int checkpointInterval; // seconds between two checkpoints
+	public int timeLimit; // wall-clock limit of the B&B in seconds (0 = no limit)
+	public int nodeLimit; // maximum number of B&B nodes solved (0 = no limit)
+	public int lsThreads; // threads improving the solutions by local search (0 = no local search)
+	public int nodeCacheSize; // number of B&B node results kept (see nodeCache, 0 = no cache)
+	public boolean asyncPricing; // SPPRC in its own thread, pipelined with the LP (see asyncPricer)
+	public boolean dssr; // SPPRC with decremental state-space relaxation (see SPPRC)
+	public boolean reuseLabels; // CG: the SPPRC resumes the last search with the new duals (see SPPRC.resume)
+	public long[] critical; // DSSR: bitset of the clients which can't be visited twice (null = none yet)
+	public int enumLimit; // max number of routes enumerated to finish the B&B by a MIP (see enumSPPRC, 0 = never)
+	public double enumGap; // enumeration only when (UB - root bound) / UB is below this gap
 	String[] citieslab;
 
 	public paramsVRP() {
@@ -37,12 +65,26 @@ public class paramsVRP {
 		speed = 1;
 		mvehic = 0;
 		verybig = 1E10;
+		checkpointPath = null;
+		checkpointInterval = 600;
+		timeLimit = 0;
+		nodeLimit = 0;
+		lsThreads = 0;
+		nodeCacheSize = 1000;
+		asyncPricing = false;
+		dssr = false;
+		reuseLabels = false;
+		critical = null;
+		enumLimit = 0;
+		enumGap = 0.02;
 	}
 
 	public void initParams(String inputPath) throws IOException {
-		int i, j;
+		int i;
 
 		try {
+			if (nbclients <= 0)
+				nbclients = countClients(inputPath); // all the clients of the file
 			/**
 			 * @update 2013. 6. 12
 			 * @modify Geunho Kim
@@ -67,15 +109,11 @@ public class paramsVRP {
 
 			citieslab = new String[nbclients + 2];
 			d = new double[nbclients + 2];
-			a = new int[nbclients + 2];
-			b = new int[nbclients + 2];
+			aInput = new int[nbclients + 2];
+			bInput = new int[nbclients + 2];
 			s = new int[nbclients + 2];
 			posx = new double[nbclients + 2];
 			posy = new double[nbclients + 2];
-			distBase = new double[nbclients + 2][nbclients + 2];
-			cost = new double[nbclients + 2][nbclients + 2];
-			dist = new double[nbclients + 2][nbclients + 2];
-			ttime = new double[nbclients + 2][nbclients + 2];
 
 			for (i = 0; i < 4; i++)
 				line = br.readLine();
@@ -88,77 +126,109 @@ public class paramsVRP {
 				posx[i] = Double.parseDouble(tokens[2]); // x coordinate
 				posy[i] = Double.parseDouble(tokens[3]); // y coordinate
 				d[i] = Double.parseDouble(tokens[4]); // demand
-				a[i] = Integer.parseInt(tokens[5]); // ready time
-				b[i] = Integer.parseInt(tokens[6]); // due time
+				aInput[i] = Integer.parseInt(tokens[5]); // ready time
+				bInput[i] = Integer.parseInt(tokens[6]); // due time
 				s[i] = Integer.parseInt(tokens[7]); // service
 				// check if the service should be done before due time
 				if (serviceInTW)
-					b[i] -= s[i];
+					bInput[i] -= s[i];
 			}
 			br.close();
 
 			// second depot : copy of the first one for arrival
 			citieslab[nbclients + 1] = citieslab[0];
 			d[nbclients + 1] = 0.0;
-			a[nbclients + 1] = a[0];
-			b[nbclients + 1] = b[0];
+			aInput[nbclients + 1] = aInput[0];
+			bInput[nbclients + 1] = bInput[0];
 			s[nbclients + 1] = 0;
 			posx[nbclients + 1] = posx[0];
 			posy[nbclients + 1] = posy[0];
 
-			// ---- distances
-			double max;
-			maxlength = 0.0;
-			for (i = 0; i < nbclients + 2; i++) {
-				max = 0.0;
-				for (j = 0; j < nbclients + 2; j++) {
-					// dist[i][j]=Math.round(10*Math.sqrt((posx[i]-posx[j])*(posx[i]-posx[j])+(posy[i]-posy[j])*(posy[i]-posy[j])))/10.0;
-					distBase[i][j] = ((int) (10 * Math
-							.sqrt((posx[i] - posx[j]) * (posx[i] - posx[j])
-									+ (posy[i] - posy[j]) * (posy[i] - posy[j])))) / 10.0;
-					// truncate to get the same results as in Solomon
-					if (max < distBase[i][j]) max = distBase[i][j];
-				}
-				maxlength += max; // a route with a length longer than this is not
-				// possible (we need it to check the feasibility of
-				// the Column Gen sol.
-			}
-			for (i = 0; i < nbclients + 2; i++) {
-				distBase[i][0] = verybig;
-				distBase[nbclients + 1][i] = verybig;
-				distBase[i][i] = verybig;
+		} catch (IOException e) {
+			System.err.println("Error: " + e);
+		}
+
+		build();
+	}
+
+	// number of clients in an instance file: the lines after the headers, minus the depot
+	static int countClients(String inputPath) throws IOException {
+		BufferedReader br = new BufferedReader(new FileReader(inputPath));
+		int nb = 0;
+		String line;
+		for (int i = 0; i < 9; i++)
+			br.readLine();
+		while ((line = br.readLine()) != null)
+			if (line.trim().length() > 0)
+				nb++;
+		br.close();
+		return nb - 1;
+	}
+
+	public void build() {
+		// compute all the matrices from the data of the vertices
+		int i, j;
+
+		a = aInput.clone();
+		b = bInput.clone();
+		distBase = new double[nbclients + 2][nbclients + 2];
+		cost = new double[nbclients + 2][nbclients + 2];
+		dist = new double[nbclients + 2][nbclients + 2];
+		ttime = new double[nbclients + 2][nbclients + 2];
+
+		// ---- distances
+		double max;
+		maxlength = 0.0;
+		for (i = 0; i < nbclients + 2; i++) {
+			max = 0.0;
+			for (j = 0; j < nbclients + 2; j++) {
+				// dist[i][j]=Math.round(10*Math.sqrt((posx[i]-posx[j])*(posx[i]-posx[j])+(posy[i]-posy[j])*(posy[i]-posy[j])))/10.0;
+				distBase[i][j] = ((int) (10 * Math
+						.sqrt((posx[i] - posx[j]) * (posx[i] - posx[j])
+								+ (posy[i] - posy[j]) * (posy[i] - posy[j])))) / 10.0;
+				// truncate to get the same results as in Solomon
+				if (max < distBase[i][j]) max = distBase[i][j];
 			}
-			/*
-			 * for(i = 0; i < 20; i++)
-			 *   distBase[10][i] = verybig;
-			 * for(i = 21; i < nbclients+2; i++)
-			 *   distBase[10][i] = verybig;
-			 * for(i = 0; i < 10; i++)
-			 *   distBase[i][20] = verybig;
-			 * for(i = 11; i < nbclients+2; i++)
-			 *   distBase[i][20] = verybig;
-			 * distBase[20][10] = verybig;
-			 */
-			for (i = 0; i < nbclients + 2; i++)
-				for (j = 0; j < nbclients + 2; j++) {
-					dist[i][j] = distBase[i][j];
-				}
+			maxlength += max; // a route with a length longer than this is not
+			// possible (we need it to check the feasibility of
+			// the Column Gen sol.
+		}
+		for (i = 0; i < nbclients + 2; i++) {
+			distBase[i][0] = verybig;
+			distBase[nbclients + 1][i] = verybig;
+			distBase[i][i] = verybig;
+		}
+		/*
+		 * for(i = 0; i < 20; i++)
+		 *   distBase[10][i] = verybig;
+		 * for(i = 21; i < nbclients+2; i++)
+		 *   distBase[10][i] = verybig;
+		 * for(i = 0; i < 10; i++)
+		 *   distBase[i][20] = verybig;
+		 * for(i = 11; i < nbclients+2; i++)
+		 *   distBase[i][20] = verybig;
+		 * distBase[20][10] = verybig;
+		 */
 
+		// ---- time
+		for (i = 0; i < nbclients + 2; i++)
+			for (j = 0; j < nbclients + 2; j++)
+				ttime[i][j] = distBase[i][j] / speed;
 
-			// ---- time
-			for (i = 0; i < nbclients + 2; i++)
-				for (j = 0; j < nbclients + 2; j++)
-					ttime[i][j] = distBase[i][j] / speed;
+		// ---- integer resources, then tighten the time windows and remove the infeasible arcs
+		scale();
+		preprocess();
 
+		for (i = 0; i < nbclients + 2; i++)
 			for (j = 0; j < nbclients + 2; j++) {
-				cost[0][j] = dist[0][j];
-				cost[j][nbclients + 1] = dist[j][nbclients + 1];
+				dist[i][j] = distBase[i][j];
 			}
-			// cost for the other edges are defined during column generation
 
-		} catch (IOException e) {
-			System.err.println("Error: " + e);
+		for (j = 0; j < nbclients + 2; j++) {
+			cost[0][j] = dist[0][j];
+			cost[j][nbclients + 1] = dist[j][nbclients + 1];
 		}
+		// cost for the other edges are defined during column generation
 
 		wval = new double[nbclients + 2];
 		for (i = 1; i < nbclients + 2; i++)
@@ -167,4 +237,254 @@ public class paramsVRP {
 		edges = new double[nbclients + 2][nbclients + 2];
 
 	}
-}
\ No newline at end of file
+
+	// ---- changes of the instance (see reoptimizer)
+	// the vertices are renumbered: the methods adding or removing a client return,
+	// for each vertex of the previous instance, its index in the new one (-1 if removed)
+	// all the matrices are rebuilt (the time windows are tightened again from the input)
+
+	public int[] addClient(String label, double x, double y, int demand,
+	                       int ready, int due, int service) {
+		int i, n = nbclients;
+		int[] from = new int[n + 3];
+		int[] map = new int[n + 2];
+		for (i = 0; i <= n; i++) {
+			from[i] = i;
+			map[i] = i;
+		}
+		from[n + 1] = -1; // the new client is inserted just before the arrival depot
+		from[n + 2] = n + 1;
+		map[n + 1] = n + 2;
+		reindex(from);
+		citieslab[n + 1] = label;
+		posx[n + 1] = x;
+		posy[n + 1] = y;
+		d[n + 1] = demand;
+		s[n + 1] = service;
+		aInput[n + 1] = ready;
+		bInput[n + 1] = serviceInTW ? due - service : due;
+		build();
+		return map;
+	}
+
+	public int[] removeClient(int client) {
+		int i, k = 0, n = nbclients;
+		if ((client < 1) || (client > n))
+			throw new IllegalArgumentException("no client " + client + " (clients 1.." + n + ")");
+		int[] from = new int[n + 1];
+		int[] map = new int[n + 2];
+		for (i = 0; i < n + 2; i++) {
+			if (i == client) {
+				map[i] = -1;
+			} else {
+				map[i] = k;
+				from[k++] = i;
+			}
+		}
+		reindex(from);
+		build();
+		return map;
+	}
+
+	public void setDemand(int client, int demand) {
+		d[client] = demand;
+		build();
+	}
+
+	public void setTimeWindow(int client, int ready, int due) {
+		aInput[client] = ready;
+		bInput[client] = serviceInTW ? due - s[client] : due;
+		build();
+	}
+
+	// instance on some of the clients (see decomposition): same vehicles and options, no checkpoint
+	// client k of the new instance = client clients[k-1] of this one
+	public paramsVRP subInstance(int[] clients) {
+		paramsVRP sub = new paramsVRP();
+		sub.mvehic = mvehic;
+		sub.capacity = capacity;
+		sub.speed = speed;
+		sub.gap = gap;
+		sub.serviceInTW = serviceInTW;
+		sub.timeLimit = timeLimit;
+		sub.nodeLimit = nodeLimit;
+		sub.lsThreads = lsThreads;
+		sub.nodeCacheSize = nodeCacheSize;
+		sub.asyncPricing = asyncPricing;
+		sub.dssr = dssr;
+		sub.reuseLabels = reuseLabels;
+		sub.enumLimit = enumLimit;
+		sub.enumGap = enumGap;
+		// (reindex makes new arrays: the data of this instance is not changed)
+		sub.nbclients = nbclients;
+		sub.citieslab = citieslab;
+		sub.posx = posx;
+		sub.posy = posy;
+		sub.d = d;
+		sub.aInput = aInput;
+		sub.bInput = bInput;
+		sub.s = s;
+		int[] from = new int[clients.length + 2];
+		from[0] = 0;
+		for (int k = 0; k < clients.length; k++)
+			from[k + 1] = clients[k];
+		from[clients.length + 1] = nbclients + 1;
+		sub.reindex(from);
+		sub.build();
+		return sub;
+	}
+
+	// new vertex k = vertex from[k] of the current instance (-1: data set by the caller)
+	// from[0] must be the depot 0 and from[last] the arrival depot
+	void reindex(int[] from) {
+		int k, m = from.length;
+		String[] newLab = new String[m];
+		double[] newX = new double[m], newY = new double[m], newD = new double[m];
+		int[] newA = new int[m], newB = new int[m], newS = new int[m];
+		for (k = 0; k < m; k++)
+			if (from[k] >= 0) {
+				newLab[k] = citieslab[from[k]];
+				newX[k] = posx[from[k]];
+				newY[k] = posy[from[k]];
+				newD[k] = d[from[k]];
+				newA[k] = aInput[from[k]];
+				newB[k] = bInput[from[k]];
+				newS[k] = s[from[k]];
+			}
+		citieslab = newLab;
+		posx = newX;
+		posy = newY;
+		d = newD;
+		aInput = newA;
+		bInput = newB;
+		s = newS;
+		nbclients = m - 2;
+		if (critical != null) {
+			// the critical clients (DSSR) keep their bit, at their new index
+			long[] newCritical = new long[(m + 63) >>> 6];
+			for (k = 0; k < m; k++)
+				if ((from[k] >= 0) && ((critical[from[k] >>> 6] & (1L << from[k])) != 0))
+					newCritical[k >>> 6] |= 1L << k;
+			critical = newCritical;
+		}
+	}
+
+	// the resources in integers (tenths for the times and distances)
+	void scale() {
+		int i, j;
+		distInt = new int[nbclients + 2][nbclients + 2];
+		ttimeInt = new int[nbclients + 2][nbclients + 2];
+		aInt = new int[nbclients + 2];
+		bInt = new int[nbclients + 2];
+		sInt = new int[nbclients + 2];
+		demand = new int[nbclients + 2];
+		for (i = 0; i < nbclients + 2; i++) {
+			for (j = 0; j < nbclients + 2; j++) {
+				if (distBase[i][j] >= verybig - 1e-6) {
+					distInt[i][j] = FORBIDDEN;
+					ttimeInt[i][j] = FORBIDDEN;
+				} else {
+					distInt[i][j] = (int) Math.round(SCALE * distBase[i][j]);
+					// (the exact value with speed 1, up to the rounding error of the division)
+					ttimeInt[i][j] = (int) Math.ceil(SCALE * ttime[i][j] - 1e-6);
+				}
+			}
+			aInt[i] = SCALE * a[i];
+			bInt[i] = SCALE * b[i];
+			sInt[i] = SCALE * s[i];
+			demand[i] = (int) Math.round(d[i]);
+			if (Math.abs(demand[i] - d[i]) > 1e-9)
+				throw new IllegalArgumentException("demand of " + citieslab[i] + " not an integer: " + d[i]);
+		}
+	}
+
+	public void preprocess() {
+		// instance preprocessing, done once before the Branch and Price
+		// 1. time window reduction (Desrochers, Desrosiers and Solomon 1992): repeat until no change
+		//      a[k] = max(a[k], min(b[k], min over predecessors i of a[i] + s[i] + ttime[i][k]))
+		//      a[k] = max(a[k], min(b[k], min over successors j of a[j] - s[k] - ttime[k][j]))
+		//      b[k] = min(b[k], max(a[k], max over predecessors i of b[i] + s[i] + ttime[i][k]))
+		//      b[k] = min(b[k], max(a[k], max over successors j of b[j] - s[k] - ttime[k][j]))
+		//    in tenths (aInt and bInt): exact; a and b (in units) are aInt rounded down and bInt rounded up
+		// 2. removal of the arcs that can't be used by time or by capacity (distBase = verybig)
+		// 3. successor lists sorted by earliest arrival, and reachability bitsets, for the SPPRC
+		int i, j, k, t, minPred, minSucc, maxPred, maxSucc;
+		boolean changed = true;
+
+		while (changed) {
+			changed = false;
+			for (k = 1; k <= nbclients; k++) {
+				minPred = Integer.MAX_VALUE;
+				maxPred = Integer.MIN_VALUE;
+				for (i = 0; i <= nbclients; i++)
+					if ((distBase[i][k] < verybig - 1e-6) && (aInt[i] + sInt[i] + ttimeInt[i][k] <= bInt[k])) {
+						t = aInt[i] + sInt[i] + ttimeInt[i][k];
+						if (t < minPred) minPred = t;
+						t = bInt[i] + sInt[i] + ttimeInt[i][k];
+						if (t > maxPred) maxPred = t;
+					}
+				minSucc = Integer.MAX_VALUE;
+				maxSucc = Integer.MIN_VALUE;
+				for (j = 1; j < nbclients + 2; j++)
+					if ((distBase[k][j] < verybig - 1e-6) && (aInt[k] + sInt[k] + ttimeInt[k][j] <= bInt[j])) {
+						t = aInt[j] - sInt[k] - ttimeInt[k][j];
+						if (t < minSucc) minSucc = t;
+						t = bInt[j] - sInt[k] - ttimeInt[k][j];
+						if (t > maxSucc) maxSucc = t;
+					}
+				if ((minPred == Integer.MAX_VALUE) || (minSucc == Integer.MAX_VALUE))
+					continue; // this client can't be served at all, nothing to tighten
+
+				int newA = aInt[k];
+				newA = Math.max(newA, Math.min(bInt[k], minPred));
+				newA = Math.max(newA, Math.min(bInt[k], minSucc));
+				int newB = bInt[k];
+				newB = Math.min(newB, Math.max(newA, maxPred));
+				newB = Math.min(newB, Math.max(newA, maxSucc));
+				if ((newA != aInt[k]) || (newB != bInt[k])) {
+					aInt[k] = newA;
+					bInt[k] = newB;
+					changed = true;
+				}
+			}
+		}
+		for (k = 0; k < nbclients + 2; k++) {
+			a[k] = Math.floorDiv(aInt[k], SCALE);
+			b[k] = -Math.floorDiv(-bInt[k], SCALE);
+		}
+
+		// arc elimination: the arc (i,j) can't be used if we arrive too late at j
+		// even when leaving i as soon as possible, or if i and j don't fit in one vehicle
+		for (i = 0; i < nbclients + 2; i++)
+			for (j = 0; j < nbclients + 2; j++)
+				if ((distBase[i][j] < verybig - 1e-6)
+						&& ((aInt[i] + sInt[i] + ttimeInt[i][j] > bInt[j]) || (demand[i] + demand[j] > capacity))) {
+					distBase[i][j] = verybig;
+					distInt[i][j] = FORBIDDEN;
+					ttimeInt[i][j] = FORBIDDEN;
+				}
+
+		// successors sorted by earliest arrival time
+		succ = new int[nbclients + 2][];
+		reach = new long[nbclients + 2][(nbclients + 2 + 63) >>> 6];
+		ArrayList<Integer> list = new ArrayList<Integer>();
+		for (i = 0; i < nbclients + 2; i++) {
+			final int[] arrival = new int[nbclients + 2];
+			list.clear();
+			for (j = 0; j < nbclients + 2; j++)
+				if (distBase[i][j] < verybig - 1e-6) {
+					arrival[j] = Math.max(aInt[j], aInt[i] + sInt[i] + ttimeInt[i][j]);
+					list.add(j);
+					reach[i][j >>> 6] |= 1L << j;
+				}
+			Collections.sort(list, new Comparator<Integer>() {
+				public int compare(Integer x, Integer y) {
+					return Integer.compare(arrival[x], arrival[y]);
+				}
+			});
+			succ[i] = new int[list.size()];
+			for (j = 0; j < list.size(); j++)
+				succ[i][j] = list.get(j);
+		}
+	}
+}
\ No newline at end of file
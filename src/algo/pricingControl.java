@@ -0,0 +1,67 @@
+package algo;
+
+// adaptive multiple pricing: how many columns to ask to the SPPRC at each CG iteration,
+// and after how many solutions at the depot the SPPRC can stop (early stop)
+//
+// more columns per call => less CG iterations (less LP solves and SPPRC calls),
+// but a bigger LP, and many columns never used.
+// After each iteration we look at:
+// - the time of the LP solve and the time of the SPPRC
+//   pricing expensive => ask more columns per call, but stop the SPPRC earlier
+//   LP expensive      => ask less columns (smaller LP), search longer for the best ones
+// - the part of the columns added at the previous iteration that are in the new basis
+//   most of them basic => they are useful, we can ask more
+//   few of them basic  => most columns are useless, ask less
+// the SPPRC also filters the routes sharing too many clients with a better route
+// (diversity: very similar routes mostly compete for the same place in the basis)
+//
+// the controller is kept from one CG (B&B node) to the next one
+
+public class pricingControl {
+	public int nbRoute = 0;           // number of columns asked to the SPPRC, 0 = not initialized
+	public double solFactor = 2.0;    // early stop of the SPPRC after solFactor x nbRoute solutions
+	public double maxOverlap = 0.8;   // max part of the clients of a route shared with a better route
+	int minRoute, maxRoute;
+	double lpTime = 0, pricingTime = 0; // smoothed times (ms) of an LP solve and of a SPPRC call
+
+	public void init(paramsVRP userParam) {
+		minRoute = Math.max(1, userParam.nbclients / 10);
+		maxRoute = 2 * userParam.nbclients;
+		if (nbRoute == 0)
+			nbRoute = userParam.nbclients; // the former fixed value
+		nbRoute = Math.min(maxRoute, Math.max(minRoute, nbRoute));
+	}
+
+	public int maxSol() {
+		return (int) Math.ceil(solFactor * nbRoute);
+	}
+
+	// lp, pricing: times (ms) of the last iteration
+	// nbAdded: columns added at the previous iteration, nbBasic: how many of them are basic now
+	public void update(double lp, double pricing, int nbAdded, int nbBasic) {
+		lpTime = (lpTime == 0) ? lp : 0.7 * lpTime + 0.3 * lp;
+		pricingTime = (pricingTime == 0) ? pricing : 0.7 * pricingTime + 0.3 * pricing;
+		double ratio = (pricingTime + 0.1) / (lpTime + 0.1);
+		double factor = 1.0;
+
+		if (ratio > 2.0) {
+			// the SPPRC dominates: more columns from each call, stop it sooner
+			factor *= 1.25;
+			solFactor = Math.max(1.0, solFactor - 0.25);
+		} else if (ratio < 0.5) {
+			// the LP dominates: smaller LP, better columns
+			factor *= 0.8;
+			solFactor = Math.min(4.0, solFactor + 0.25);
+		}
+
+		if (nbAdded > 0) {
+			double used = (double) nbBasic / nbAdded;
+			if (used < 0.2)
+				factor *= 0.7;
+			else if (used > 0.5)
+				factor *= 1.3;
+		}
+
+		nbRoute = Math.min(maxRoute, Math.max(minRoute, (int) Math.round(nbRoute * factor)));
+	}
+}
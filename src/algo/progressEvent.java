@@ -0,0 +1,34 @@
+package algo;
+
+import java.util.ArrayList;
+
+// one progress event of the Branch and Price, pushed to a solveListener
+
+public class progressEvent {
+	public static final int NODE = 0;      // a node of the B&B has been solved
+	public static final int INCUMBENT = 1; // a better integer solution has been found
+	public static final int END = 2;       // the search has stopped (see the status of the solveResult)
+
+	public int type;
+	public double lowerbound;
+	public double upperbound;
+	public double gap;                 // relative gap (upperbound - lowerbound) / upperbound
+	public int nbNodes;                // number of nodes solved up to now
+	public int nbOpen;                 // number of nodes still to solve
+	public int depth;                  // depth of the last node solved
+	public long elapsed;               // ms since the start of the search
+	public ArrayList<route> routes;    // INCUMBENT and END: the best solution, null otherwise
+
+	public progressEvent(int type, double lowerbound, double upperbound, int nbNodes,
+	                     int nbOpen, int depth, long elapsed, ArrayList<route> routes) {
+		this.type = type;
+		this.lowerbound = lowerbound;
+		this.upperbound = upperbound;
+		this.gap = (upperbound - lowerbound) / upperbound;
+		this.nbNodes = nbNodes;
+		this.nbOpen = nbOpen;
+		this.depth = depth;
+		this.elapsed = elapsed;
+		this.routes = routes;
+	}
+}
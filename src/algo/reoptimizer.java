@@ -0,0 +1,164 @@
+package algo;
+
+// incremental re-optimization of an instance that changes during the day
+// (new or cancelled clients, new demands or time windows)
+//
+// the reoptimizer keeps the routes (column pool) and the best solution of the previous solve.
+// After a change of the instance, the routes are renumbered, checked against the new
+// paramsVRP and repaired, then the Branch and Price is warm-started from them:
+// - the repaired pool initializes the Column generation at the root
+// - the repaired best solution gives the first upper bound
+// set paramsVRP.timeLimit to bound the time of a re-plan
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+
+public class reoptimizer {
+	paramsVRP userParam;
+	ArrayList<route> pool;      // routes of the previous solves
+	ArrayList<route> incumbent; // best solution of the previous solve
+
+	public reoptimizer(paramsVRP userParam) {
+		this.userParam = userParam;
+		pool = new ArrayList<route>();
+		incumbent = new ArrayList<route>();
+	}
+
+	public solveResult solve(solveListener listener) throws IOException {
+		// first solve, or re-solve after some changes
+		repairPool();
+		ArrayList<route> start = repairIncumbent();
+		branchandbound bp = new branchandbound();
+		solveResult result = bp.solve(userParam, new ArrayList<route>(pool), start, listener);
+		pool = bp.pool.toList();
+		if (result.hasSolution())
+			incumbent = result.routes;
+		return result;
+	}
+
+	public ArrayList<route> getIncumbent() {
+		return incumbent;
+	}
+
+	// ---- changes of the instance
+
+	public int addClient(String label, double x, double y, int demand,
+	                     int ready, int due, int service) {
+		renumber(userParam.addClient(label, x, y, demand, ready, due, service));
+		return userParam.nbclients; // index of the new client
+	}
+
+	public void removeClient(int client) {
+		renumber(userParam.removeClient(client));
+	}
+
+	public void setDemand(int client, int demand) {
+		userParam.setDemand(client, demand);
+	}
+
+	public void setTimeWindow(int client, int ready, int due) {
+		userParam.setTimeWindow(client, ready, due);
+	}
+
+	// ---- repair
+
+	void renumber(int[] map) {
+		// new numbering of the vertices; the removed clients are skipped
+		pool = renumber(pool, map);
+		incumbent = renumber(incumbent, map);
+	}
+
+	ArrayList<route> renumber(ArrayList<route> routes, int[] map) {
+		ArrayList<route> result = new ArrayList<route>(routes.size());
+		for (route r : routes) {
+			int[] path = new int[r.path.length];
+			int size = 0;
+			for (int city : r.path)
+				if (map[city] >= 0)
+					path[size++] = map[city];
+			result.add(new route(Arrays.copyOf(path, size), userParam));
+		}
+		return result;
+	}
+
+	void repairPool() {
+		// keep the routes still feasible (once each), with their new cost, and make sure
+		// that each client has its trivial route Depot-Client-Depot (feasibility of the CG)
+		int i;
+		ArrayList<route> repaired = new ArrayList<route>(pool.size() + userParam.nbclients);
+		HashSet<route> seen = new HashSet<route>();
+		for (i = 1; i <= userParam.nbclients; i++) {
+			route r = route.single(i, userParam);
+			seen.add(r);
+			repaired.add(r);
+		}
+		for (route r : pool) {
+			// the distances or the demands may have changed: new route, new cost and load
+			r = new route(r.path, userParam);
+			if ((r.size() > 1) && !seen.contains(r) && r.isFeasible(userParam)) {
+				seen.add(r);
+				repaired.add(r);
+			}
+		}
+		System.out.println("REPAIR | " + repaired.size() + " routes kept from " + pool.size());
+		pool = repaired;
+	}
+
+	ArrayList<route> repairIncumbent() {
+		// keep each route as long as it remains feasible, and serve the other clients
+		// (new or removed from an infeasible route) with a trivial route
+		// return null if no feasible solution can be built this way
+		int i;
+		if (incumbent.isEmpty())
+			return null;
+		boolean[] served = new boolean[userParam.nbclients + 2];
+		ArrayList<route> repaired = new ArrayList<route>();
+		int[] path = new int[userParam.nbclients + 2];
+		for (route r : incumbent) {
+			int size = 0;
+			path[size++] = 0;
+			int t = userParam.aInt[0];
+			int load = 0;
+			int prev = 0;
+			for (int city : r.path) {
+				if ((city == 0) || (city == userParam.nbclients + 1) || served[city])
+					continue;
+				int tt = Math.max(userParam.aInt[city], t + userParam.sInt[prev] + userParam.ttimeInt[prev][city]);
+				if ((userParam.distBase[prev][city] < userParam.verybig - 1e-6)
+						&& (tt <= userParam.bInt[city]) && (load + userParam.demand[city] <= userParam.capacity)) {
+					path[size++] = city;
+					served[city] = true;
+					t = tt;
+					load += userParam.demand[city];
+					prev = city;
+				}
+			}
+			path[size++] = userParam.nbclients + 1;
+			route newRoute = new route(Arrays.copyOf(path, size), userParam);
+			while ((size > 2) && !newRoute.isFeasible(userParam)) {
+				// too late back to the depot: give back the last client
+				served[path[size - 2]] = false;
+				path[size - 2] = userParam.nbclients + 1;
+				size--;
+				newRoute = new route(Arrays.copyOf(path, size), userParam);
+			}
+			if (size > 2)
+				repaired.add(newRoute);
+		}
+		for (i = 1; i <= userParam.nbclients; i++) {
+			if (!served[i]) {
+				route r = route.single(i, userParam);
+				if (!r.isFeasible(userParam))
+					return null;
+				repaired.add(r);
+			}
+		}
+		double cost = 0.0;
+		for (route r : repaired)
+			cost += r.getcost();
+		System.out.println("REPAIR | incumbent of cost " + cost + " with " + repaired.size() + " routes");
+		return repaired;
+	}
+}
@@ -1,75 +1,109 @@
 package algo;
 
-import java.util.ArrayList;
-
-public class route implements Cloneable {
-	public double cost, Q;
-	// first resource: cost (e.g. distance or strict travel time)
-
-	public ArrayList<Integer> path;
-
-	public route() {
-		this.path = new ArrayList<Integer>();
-		this.cost = 0.0;
+import java.util.Arrays;
+
+// a column of the Column generation: an elementary path from the depot 0 to the depot nbclients+1
+// immutable and compact: the path is an int[], with precomputed data
+// used by the CG and the B&B (clients visited, fingerprint of the arcs, real cost and load)
+
+public class route {
+	public final int[] path;     // sequence of vertices, from depot 0 to depot nbclients+1
+	public final long[] clients; // bitset of the clients visited
+	public final long hash;      // fingerprint of the arcs of the path
+	public final double cost;    // real cost (distBase, i.e. without the branching or the duals)
+	public final int load;       // total demand of the clients visited
+
+	public route(int[] path, paramsVRP userParam) {
+		this.path = path;
+		this.clients = new long[(userParam.nbclients + 2 + 63) >>> 6];
+		// the cost is summed in tenths (exact), verybig if an arc was removed
+		long c = 0;
+		int l = 0;
+		boolean removed = false;
+		long h = 0;
+		for (int i = 1; i < path.length; i++) {
+			c += userParam.distInt[path[i - 1]][path[i]];
+			removed |= userParam.distBase[path[i - 1]][path[i]] >= userParam.verybig - 1e-6;
+			l += userParam.demand[path[i]];
+			h += mix(((long) path[i - 1] << 32) | path[i]);
+			if (i < path.length - 1)
+				clients[path[i] >>> 6] |= 1L << path[i];
+		}
+		this.cost = removed ? userParam.verybig : (double) c / paramsVRP.SCALE;
+		this.load = l;
+		this.hash = h;
 	}
 
-	public route(int pathSize) {
-		this.path = new ArrayList<Integer>(pathSize);
-		this.cost = 0.0;
+	// trivial route Depot-Client-Depot
+	public static route single(int client, paramsVRP userParam) {
+		return new route(new int[]{0, client, userParam.nbclients + 1}, userParam);
 	}
 
-	/*
-	 * @update 2013. 6. 8
-	 * @modify Geunho Kim
-	 */
-	// method for deep cloning
-	public route clone() throws CloneNotSupportedException {
-		route route = (route) super.clone();
-		route.path = (ArrayList<Integer>) path.clone();
-		return route;
+	// 64 bits mixing function (splitmix64 finalizer)
+	static long mix(long x) {
+		x = (x ^ (x >>> 30)) * 0xbf58476d1ce4e5b9L;
+		x = (x ^ (x >>> 27)) * 0x94d049bb133111ebL;
+		return x ^ (x >>> 31);
 	}
 
-	public void removeCity(int city) {
-		this.path.remove(Integer.valueOf(city));
-
+	public boolean visits(int city) {
+		return (clients[city >>> 6] & (1L << city)) != 0;
 	}
 
-	public void addcity(int f_city, int city) {
-		int index = this.path.indexOf(f_city);
-		this.path.add(index + 1, city);
+	// number of clients visited
+	public int size() {
+		return path.length - 2;
 	}
 
-	public void addcity(int city) {
-		this.path.add(city);
+	public double getcost() {
+		return this.cost;
 	}
 
-	public void setcost(double c) {
-		this.cost = c;
+	public int[] getpath() {
+		return this.path;
 	}
 
-	public double getcost() {
-		return this.cost;
+	// cost of the path with the distances of the current B&B node (dist):
+	// very large if the path uses an edge forbidden by the branching
+	public double nodeCost(paramsVRP userParam) {
+		double c = 0.0;
+		for (int i = 1; i < path.length; i++)
+			c += userParam.dist[path[i - 1]][path[i]];
+		return c;
 	}
 
-	public void setQ(double a) {
-		this.Q = a;
+	// check the edges, the time windows and the capacity along the path
+	public boolean isFeasible(paramsVRP userParam) {
+		if ((path.length < 2) || (path[0] != 0)
+				|| (path[path.length - 1] != userParam.nbclients + 1))
+			return false;
+		int t = userParam.aInt[0];
+		int load = 0;
+		for (int i = 1; i < path.length; i++) {
+			int prev = path[i - 1];
+			int city = path[i];
+			if (userParam.distBase[prev][city] >= userParam.verybig - 1e-6)
+				return false;
+			t = Math.max(userParam.aInt[city], t + userParam.sInt[prev] + userParam.ttimeInt[prev][city]);
+			load += userParam.demand[city];
+			if ((t > userParam.bInt[city]) || (load > userParam.capacity))
+				return false;
+		}
+		return true;
 	}
 
-	public double getQ() {
-		return this.Q;
+	public boolean equals(Object o) {
+		if (!(o instanceof route))
+			return false;
+		route r = (route) o;
+		return (hash == r.hash) && Arrays.equals(path, r.path);
 	}
 
-	public ArrayList<Integer> getpath() {
-		return this.path;
+	public int hashCode() {
+		return (int) (hash ^ (hash >>> 32));
 	}
 
-	public void switchpath() {
-		Integer swap;
-		int nb = path.size() / 2;
-		for (int i = 0; i < nb; i++) {
-			swap = path.get(i);
-			path.set(i, path.get(path.size() - 1 - i));
-			path.set(path.size() - 1 - i, swap);
-		}
+	public String toString() {
+		return Arrays.toString(path);
 	}
-}
\ No newline at end of file
+}
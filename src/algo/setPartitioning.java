@@ -0,0 +1,68 @@
+package algo;
+
+// integer problem on a fixed set of routes (see enumSPPRC): choose routes of minimum cost
+// visiting every client exactly once, solved directly by the Gurobi MIP solver
+// (a partitioning, not the covering of the master LP: without the triangle inequality, as with
+// the truncated distances, an optimal covering can serve a client twice at no cost. The
+// enumeration gives all the elementary routes of the solutions better than the incumbent,
+// and these solutions serve each client once: nothing is lost)
+
+import java.util.ArrayList;
+
+import com.gurobi.gurobi.*;
+
+public class setPartitioning {
+	double timeLimit = 0; // seconds, 0 = no limit
+	boolean optimal;      // result: the solution is optimal (or the problem is proven infeasible)
+	double obj;           // result: cost of the solution (1E10 if none)
+
+	// best solution with a cost < cutoff, null if none (or not found within the time limit)
+	public ArrayList<route> solve(paramsVRP userParam, ArrayList<route> routes, double cutoff) {
+		optimal = false;
+		obj = 1E10;
+		try {
+			GRBEnv env = new GRBEnv(true);
+			env.set(GRB.IntParam.OutputFlag, 0);
+			env.start();
+			GRBModel model = new GRBModel(env);
+			model.set(GRB.IntAttr.ModelSense, GRB.MINIMIZE);
+			if (timeLimit > 0)
+				model.set(GRB.DoubleParam.TimeLimit, timeLimit);
+			model.set(GRB.DoubleParam.Cutoff, cutoff);
+
+			GRBConstr[] visit = new GRBConstr[userParam.nbclients];
+			for (int i = 0; i < userParam.nbclients; i++)
+				visit[i] = model.addConstr(new GRBLinExpr(), GRB.EQUAL, 1.0, "c" + i);
+			GRBVar[] y = new GRBVar[routes.size()];
+			for (int k = 0; k < routes.size(); k++) {
+				int[] path = routes.get(k).getpath();
+				GRBColumn column = new GRBColumn();
+				for (int i = 1; i < path.length - 1; i++)
+					column.addTerm(1.0, visit[path[i] - 1]);
+				y[k] = model.addVar(0.0, 1.0, routes.get(k).getcost(), GRB.BINARY, column, "y" + k);
+			}
+			model.optimize();
+
+			int status = model.get(GRB.IntAttr.Status);
+			ArrayList<route> sol = null;
+			// (CUTOFF/INFEASIBLE: no solution cheaper than the cutoff among these routes)
+			optimal = (status == GRB.Status.OPTIMAL) || (status == GRB.Status.CUTOFF)
+					|| (status == GRB.Status.INFEASIBLE);
+			if (((status == GRB.Status.OPTIMAL) || (status == GRB.Status.TIME_LIMIT))
+					&& (model.get(GRB.IntAttr.SolCount) > 0)) {
+				sol = new ArrayList<route>();
+				double[] x = model.get(GRB.DoubleAttr.X, y);
+				for (int k = 0; k < routes.size(); k++)
+					if (x[k] > 0.5)
+						sol.add(routes.get(k));
+				obj = model.get(GRB.DoubleAttr.ObjVal);
+			}
+			model.dispose();
+			env.dispose();
+			return sol;
+		} catch (GRBException e) {
+			System.err.println("Gurobi exception caught: Code " + e.getErrorCode() + " - " + e.getMessage());
+		}
+		return null;
+	}
+}
@@ -0,0 +1,8 @@
+package algo;
+
+// receives the progress of the Branch and Price (see branchandbound.solve)
+// called from the solving thread: keep it short, or hand the event over to another thread
+
+public interface solveListener {
+	void progress(progressEvent event);
+}
@@ -0,0 +1,25 @@
+package algo;
+
+import java.util.ArrayList;
+
+// result of branchandbound.solve: best solution and bounds when the search stopped
+
+public class solveResult {
+	public static final int OPTIMAL = 0;     // the gap target (paramsVRP.gap) is reached
+	public static final int TIME_LIMIT = 1;  // stopped by paramsVRP.timeLimit
+	public static final int NODE_LIMIT = 2;  // stopped by paramsVRP.nodeLimit
+	public static final int INFEASIBLE = 3;  // no integer solution exists
+	public static final int ERROR = 4;
+
+	public int status;
+	public double lowerbound;
+	public double upperbound;
+	public double gap;
+	public int nbNodes;
+	public long elapsed; // ms
+	public ArrayList<route> routes; // best solution found (empty if none)
+
+	public boolean hasSolution() {
+		return !routes.isEmpty();
+	}
+}
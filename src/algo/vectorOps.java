@@ -0,0 +1,75 @@
+package algo;
+
+// dense kernels of the CG and of the SPPRC, on flat primitive arrays (array + offset)
+// they use the Vector API (SIMD, see vectorKernels) when the module jdk.incubator.vector
+// is available, i.e. when the JVM is started with --add-modules jdk.incubator.vector,
+// otherwise the scalar loops below (same results)
+//
+// vectorKernels is in the optional source root src-vector (it imports jdk.incubator.vector:
+// src compiles without the module). It is loaded by its name, only when the module is there:
+// no error without the module or without the class
+
+public class vectorOps {
+	static final kernels SIMD = load(); // null: scalar loops only
+	public static final boolean AVAILABLE = (SIMD != null);
+	public static boolean enabled = AVAILABLE; // can be set to false to compare with the scalar loops
+	static final int MINBATCH = 64; // smaller batches: the scalar loop is faster (see vectorBench)
+
+	// the kernels with the Vector API (see vectorKernels)
+	interface kernels {
+		void subtract(double[] src, int srcOff, double[] dst, int dstOff, int len, double v);
+
+		int filter(double[] a, double[] b, double[] c, int from, int to,
+		           double va, double vb, double vc, boolean le, int[] out);
+	}
+
+	static kernels load() {
+		if (!ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent())
+			return null;
+		try {
+			return (kernels) Class.forName("algo.vectorKernels").getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			return null; // compiled without src-vector
+		}
+	}
+
+	// dst[dstOff + j] = src[srcOff + j] - v, for j in 0..len-1
+	// (one row of the reduced costs: cost[i][j] = dist[i][j] - pi[i-1])
+	public static void subtract(double[] src, int srcOff, double[] dst, int dstOff, int len, double v) {
+		if (enabled)
+			SIMD.subtract(src, srcOff, dst, dstOff, len, v);
+		else
+			subtractScalar(src, srcOff, dst, dstOff, len, v);
+	}
+
+	// positions k in from..to-1 with a[k] <= va, b[k] <= vb and c[k] <= vc (le = true)
+	// or with a[k] >= va, b[k] >= vb and c[k] >= vc (le = false)
+	// written in out (in increasing order), returns their number
+	// (dominance of labels on the resources: one label against a batch of labels)
+	public static int filter(double[] a, double[] b, double[] c, int from, int to,
+	                         double va, double vb, double vc, boolean le, int[] out) {
+		if (enabled && (to - from >= MINBATCH))
+			return SIMD.filter(a, b, c, from, to, va, vb, vc, le, out);
+		return filterScalar(a, b, c, from, to, va, vb, vc, le, out, 0);
+	}
+
+	static void subtractScalar(double[] src, int srcOff, double[] dst, int dstOff, int len, double v) {
+		for (int j = 0; j < len; j++)
+			dst[dstOff + j] = src[srcOff + j] - v;
+	}
+
+	// n: number of positions already in out
+	static int filterScalar(double[] a, double[] b, double[] c, int from, int to,
+	                        double va, double vb, double vc, boolean le, int[] out, int n) {
+		if (le) {
+			for (int k = from; k < to; k++)
+				if ((a[k] <= va) && (b[k] <= vb) && (c[k] <= vc))
+					out[n++] = k;
+		} else {
+			for (int k = from; k < to; k++)
+				if ((a[k] >= va) && (b[k] >= vb) && (c[k] >= vc))
+					out[n++] = k;
+		}
+		return n;
+	}
+}
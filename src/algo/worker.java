@@ -0,0 +1,133 @@
+package algo;
+
+// distributed Branch and Price: a worker (see coordinator for the protocol)
+// solves the nodes sent by the coordinator with its own columngen/SPPRC
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+
+public class worker {
+
+	public static void run(String host, int port, paramsVRP userParam) throws IOException {
+		int i, n;
+		Socket socket = new Socket(host, port);
+		DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+		out.writeInt(userParam.nbclients);
+		out.flush();
+
+		// copy of the pool of the coordinator: same ids on both sides
+		// the columns generated by a node are added after the known ones, sent to the
+		// coordinator, then removed: the coordinator sends them back with its own ids
+		columnPool pool = new columnPool();
+		nodeCache cache = new nodeCache(userParam.nodeCacheSize); // kept from one node to the next
+		ArrayList<route> sent = new ArrayList<route>(); // columns of the last node, removed from the pool
+		int sentFrom = 0; // their former ids: sentFrom, sentFrom+1...
+		int nbNodes = 0;
+
+		while (in.readInt() == coordinator.NODE) {
+			branchandbound bb = new branchandbound();
+			bb.pool = pool;
+			bb.cache = cache;
+			bb.upperbound = in.readDouble();
+			double ub = bb.upperbound;
+
+			n = in.readInt();
+			for (i = 0; i < n; i++)
+				pool.add(checkpoint.readRoute(in, userParam));
+			int known = pool.size();
+			if (!sent.isEmpty()) {
+				// the columns of the last node are back, with the ids of the coordinator
+				int[] map = new int[sent.size()];
+				for (i = 0; i < map.length; i++) {
+					Integer id = pool.ids.get(sent.get(i));
+					map[i] = (id == null) ? -1 : id;
+				}
+				cache.renumber(sentFrom, map);
+				sent.clear();
+			}
+
+			// branching decisions from the root
+			branchandbound.treeBB branching = bb.new treeBB();
+			branching.father = null;
+			branching.branchFrom = -1;
+			branching.branchTo = -1;
+			branching.branchValue = -1;
+			branching.lowestValue = -1E10;
+			n = in.readInt();
+			for (i = 0; i < n; i++) {
+				branchandbound.treeBB son = bb.new treeBB();
+				son.father = branching;
+				son.branchFrom = in.readInt();
+				son.branchTo = in.readInt();
+				son.branchValue = in.readInt();
+				son.lowestValue = -1E10;
+				branching = son;
+			}
+			int depth = in.readInt();
+			int[] columns = new int[in.readInt()];
+			for (i = 0; i < columns.length; i++)
+				columns[i] = in.readInt();
+
+			ArrayList<route> bestRoutes = new ArrayList<route>();
+			branchandbound.openNode node = bb.new openNode(branching, columns, depth);
+			if (!bb.solveNode(userParam, node, bestRoutes))
+				throw new IOException("node not solved");
+			// a CG stopped by the time limit puts its node back in the open nodes: not solved
+			boolean solved = !bb.open.contains(node);
+			if (solved)
+				nbNodes++;
+
+			// columns used in the LP solution of the node (if it was solved)
+			boolean[] good = new boolean[pool.size()];
+			if (node.x != null)
+				for (i = 0; i < node.columns.length; i++)
+					if (node.x[i] > 1e-6)
+						good[node.columns[i]] = true;
+
+			// result: bound, new columns, columns of the pool used in the LP solution,
+			// sons and better incumbent
+			out.writeDouble(branching.lowestValue);
+			out.writeInt(pool.size() - known);
+			for (int id = known; id < pool.size(); id++) {
+				checkpoint.writeRoute(out, pool.get(id));
+				out.writeBoolean(good[id]);
+			}
+			ArrayList<Integer> goodIds = new ArrayList<Integer>();
+			for (int id = 0; id < known; id++)
+				if (good[id])
+					goodIds.add(id);
+			out.writeInt(goodIds.size());
+			for (Integer id : goodIds)
+				out.writeInt(id);
+			if (!solved)
+				out.writeInt(coordinator.REQUEUE);
+			else {
+				out.writeInt(bb.open.size());
+				for (branchandbound.openNode son : bb.open) {
+					out.writeInt(son.branching.branchFrom);
+					out.writeInt(son.branching.branchTo);
+					out.writeInt(son.branching.branchValue);
+				}
+			}
+			if (bb.upperbound < ub) {
+				out.writeInt(bestRoutes.size());
+				for (route r : bestRoutes)
+					checkpoint.writeRoute(out, r);
+			} else
+				out.writeInt(0);
+			out.flush();
+			for (int id = known; id < pool.size(); id++)
+				sent.add(pool.get(id));
+			sentFrom = known;
+			pool.truncate(known);
+		}
+		socket.close();
+		System.out.println("WORKER | " + nbNodes + " nodes solved");
+	}
+}
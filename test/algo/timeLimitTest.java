@@ -0,0 +1,57 @@
+package algo;
+
+// check of the time limit of the column generation (see columngen.timedOut)
+// a CG stopped by its deadline, in the LP or in the pricing, must say so: its objective is not
+// a lower bound, and the B&B must keep the node open instead of bounding or cutting it
+//
+// usage: timeLimitTest [instance nbclients]  (needs Gurobi, as Main; exit code 1 if a check fails)
+// 1. the root CG with deadlines from 1 ms to 1 s: if it is not timedOut, its value is the LP value
+// 2. the B&B with a time limit of 1 s on a large instance: the root is still open, no lower bound
+
+import java.io.IOException;
+
+public class timeLimitTest {
+
+	public static void main(String[] args) throws IOException {
+		String inputPath = (args.length > 0) ? args[0] : "dataset/C110_1.TXT";
+		int nbclients = (args.length > 1) ? Integer.parseInt(args[1]) : 200;
+		int failed = 0;
+
+		// ---- 1. the root CG
+		paramsVRP instance = new paramsVRP();
+		instance.nbclients = nbclients;
+		instance.initParams(inputPath);
+		double lp = new columngen().computeColGen(instance, new columnPool(), new int[0]);
+		System.out.println("root LP: " + lp);
+		int[] delays = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000};
+		for (int delay : delays) {
+			columngen CG = new columngen();
+			CG.deadline = System.currentTimeMillis() + delay;
+			double obj = CG.computeColGen(instance, new columnPool(), new int[0]);
+			// (the CG can stop when the Lagrangian bound rounded up to 0.1 reaches the LP)
+			boolean ok = CG.timedOut || (Math.abs(obj - lp) < 0.1 + 1e-6);
+			System.out.println("deadline " + delay + " ms: " + (CG.timedOut ? "timed out" : "converged")
+					+ " | " + obj + (ok ? "" : " | FAILED: not the LP value"));
+			if (!ok)
+				failed++;
+		}
+
+		// ---- 2. the B&B
+		instance = new paramsVRP();
+		instance.nbclients = nbclients;
+		instance.timeLimit = 1;
+		instance.lsThreads = 0;
+		instance.initParams(inputPath);
+		branchandbound bp = new branchandbound();
+		solveResult result = bp.solve(instance, new java.util.ArrayList<route>(), null);
+		boolean requeued = (bp.open.size() == 1) && (bp.open.get(0).branching.father == null);
+		boolean ok = (result.status == solveResult.TIME_LIMIT) && requeued && (result.lowerbound <= -1E10);
+		System.out.println("B&B with 1 s: status " + result.status + " | root open: " + requeued
+				+ " | lower bound: " + result.lowerbound + (ok ? "" : " | FAILED"));
+		if (!ok)
+			failed++;
+
+		System.out.println((failed == 0) ? "OK" : failed + " FAILED");
+		System.exit((failed == 0) ? 0 : 1);
+	}
+}
@@ -0,0 +1,110 @@
+package algo;
+
+// micro benchmark of the kernels of vectorOps: SIMD (Vector API) against the scalar loops
+// run with:  java --add-modules jdk.incubator.vector -cp <classes> algo.vectorBench [instance nbclients]
+// with an instance, the whole SPPRC is also timed (random duals, as in a CG iteration)
+// the first rounds are only there for the JIT (the Vector API is slow before its compilation)
+
+import java.util.ArrayList;
+import java.util.Random;
+
+public class vectorBench {
+	static double sink; // keep the results alive
+
+	public static void main(String[] args) throws Exception {
+		System.out.println("Vector API available: " + vectorOps.AVAILABLE);
+		if (!vectorOps.AVAILABLE)
+			System.out.println("(start the JVM with --add-modules jdk.incubator.vector to compare)");
+
+		// reduced costs of a 1002 x 1002 matrix (C110_1: 1000 clients)
+		int n = 1002;
+		double[][] dist = new double[n][n];
+		double[][] cost = new double[n][n];
+		double[] pi = new double[n];
+		Random rnd = new Random(1);
+		for (int i = 0; i < n; i++) {
+			pi[i] = 100 * rnd.nextDouble();
+			for (int j = 0; j < n; j++)
+				dist[i][j] = 100 * rnd.nextDouble();
+		}
+		for (boolean simd : modes()) {
+			vectorOps.enabled = simd;
+			long t = 0;
+			for (int round = 0; round < 200; round++) {
+				long t0 = System.nanoTime();
+				for (int i = 1; i < n - 1; i++)
+					vectorOps.subtract(dist[i], 0, cost[i], 0, n, pi[i - 1]);
+				if (round >= 100)
+					t += System.nanoTime() - t0;
+			}
+			sink += cost[n / 2][n / 2];
+			System.out.println("reduced costs " + n + "x" + n + (simd ? " SIMD  " : " scalar") + ": "
+					+ (t / 100 / 1000) + " us");
+		}
+
+		// dominance filter on batches of labels
+		for (int size : new int[]{8, 32, 128, 1024}) {
+			double[] a = new double[size];
+			double[] b = new double[size];
+			double[] c = new double[size];
+			int[] out = new int[size];
+			for (int k = 0; k < size; k++) {
+				a[k] = 1000 * rnd.nextDouble();
+				b[k] = 200 * rnd.nextDouble();
+				c[k] = rnd.nextInt(30);
+			}
+			int reps = 20000000 / size;
+			// dense: 1 label in 8 passes the test on the resources, sparse: about 1 in 1000
+			for (double[] q : new double[][]{{500, 100, 15}, {100, 20, 3}}) {
+				for (boolean simd : modes()) {
+					vectorOps.enabled = simd;
+					long t = 0;
+					for (int round = 0; round < 30; round++) {
+						long t0 = System.nanoTime();
+						int found = 0;
+						for (int r = 0; r < reps; r++)
+							found += vectorOps.filter(a, b, c, 0, size, q[0], q[1], q[2], true, out);
+						sink += found;
+						if (round >= 5)
+							t += System.nanoTime() - t0;
+					}
+					System.out.println("dominance filter, batch " + size + ((q[0] > 100) ? " dense " : " sparse")
+							+ (simd ? " SIMD  " : " scalar") + ": " + (t / 25 / reps) + " ns per batch");
+				}
+			}
+		}
+
+		// whole SPPRC
+		if (args.length >= 2) {
+			paramsVRP userParam = new paramsVRP();
+			userParam.nbclients = Integer.parseInt(args[1]);
+			userParam.initParams(args[0]);
+			int nc = userParam.nbclients;
+			double[] duals = new double[nc];
+			for (int i = 0; i < nc; i++)
+				duals[i] = userParam.distBase[0][i + 1] * (0.8 + 0.9 * rnd.nextDouble());
+			for (boolean simd : modes()) {
+				vectorOps.enabled = simd;
+				long t = 0;
+				int nbRoutes = 0;
+				for (int round = 0; round < 30; round++) {
+					long t0 = System.nanoTime();
+					for (int i = 1; i < nc + 1; i++)
+						vectorOps.subtract(userParam.dist[i], 0, userParam.cost[i], 0, nc + 2, duals[i - 1]);
+					ArrayList<route> routes = new ArrayList<route>();
+					new SPPRC().shortestPath(userParam, routes, nc);
+					nbRoutes = routes.size();
+					if (round >= 5)
+						t += System.nanoTime() - t0;
+				}
+				System.out.println("SPPRC " + args[0] + (simd ? " SIMD  " : " scalar") + ": "
+						+ String.format("%.2f", t / 25 / 1e6) + " ms (" + nbRoutes + " routes)");
+			}
+		}
+		System.out.println("(" + sink + ")");
+	}
+
+	static boolean[] modes() {
+		return vectorOps.AVAILABLE ? new boolean[]{false, true} : new boolean[]{false};
+	}
+}